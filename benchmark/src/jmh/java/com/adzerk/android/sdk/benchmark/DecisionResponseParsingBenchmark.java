@@ -0,0 +1,79 @@
+package com.adzerk.android.sdk.benchmark;
+
+import com.adzerk.android.sdk.gson.GsonFactory;
+import com.adzerk.android.sdk.rest.DecisionResponse;
+import com.google.gson.Gson;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Parses single-winner and multi-winner DecisionResponse payloads through the SDK's Gson.
+ */
+@State(Scope.Benchmark)
+public class DecisionResponseParsingBenchmark {
+
+    static final int PLACEMENT_COUNT = 10;
+    static final int WINNER_COUNT = 3;
+
+    @Param({"single", "multi"})
+    String shape;
+
+    Gson gson;
+    String json;
+
+    @Setup
+    public void setUp() {
+        gson = GsonFactory.create();
+        json = createResponse("multi".equals(shape));
+    }
+
+    @Benchmark
+    public DecisionResponse parseDecisionResponse() {
+        return gson.fromJson(json, DecisionResponse.class);
+    }
+
+    private static String createResponse(boolean multiWinner) {
+        StringBuilder sb = new StringBuilder("{\"user\":{\"key\":\"ad39231daeb043f2a9610414f08394b5\"},\"decisions\":{");
+        for (int i = 0; i < PLACEMENT_COUNT; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("\"div").append(i).append("\":");
+            if (multiWinner) {
+                sb.append('[');
+                for (int w = 0; w < WINNER_COUNT; w++) {
+                    if (w > 0) {
+                        sb.append(',');
+                    }
+                    appendDecision(sb, i * WINNER_COUNT + w);
+                }
+                sb.append(']');
+            } else {
+                appendDecision(sb, i);
+            }
+        }
+        return sb.append("}}").toString();
+    }
+
+    private static void appendDecision(StringBuilder sb, int id) {
+        sb.append("{\"adId\":").append(id)
+          .append(",\"creativeId\":").append(id + 1000)
+          .append(",\"flightId\":").append(id + 2000)
+          .append(",\"campaignId\":").append(id + 3000)
+          .append(",\"advertiserId\":").append(id + 4000)
+          .append(",\"clickUrl\":\"https://e-9792.adzerk.net/r?e=eyJ2IjoiMS42IiwiYXYiOjU&s=").append(id).append('"')
+          .append(",\"impressionUrl\":\"https://e-9792.adzerk.net/i.gif?e=eyJ2IjoiMS42IiwiYXYiOjU&s=").append(id).append('"')
+          .append(",\"contents\":[{\"type\":\"html\",\"template\":\"image\",\"data\":{")
+          .append("\"imageUrl\":\"https://static.adzerk.net/Advertisers/").append(id).append(".jpg\",")
+          .append("\"title\":\"Creative ").append(id).append("\",\"width\":300,\"height\":250,")
+          .append("\"customData\":{\"headline\":\"Headline ").append(id).append("\",\"rating\":4.5}},")
+          .append("\"body\":\"<a href='https://e-9792.adzerk.net/r'><img src='https://static.adzerk.net/Advertisers/")
+          .append(id).append(".jpg' title='Creative ").append(id).append("' width=300 height=250></a>\"}]")
+          .append(",\"events\":[{\"id\":12,\"url\":\"https://e-9792.adzerk.net/e.gif?e=12\"},")
+          .append("{\"id\":13,\"url\":\"https://e-9792.adzerk.net/e.gif?e=13\"}]}");
+    }
+}
@@ -0,0 +1,57 @@
+package com.adzerk.android.sdk.benchmark;
+
+import com.adzerk.android.sdk.gson.GsonFactory;
+import com.adzerk.android.sdk.rest.Consent;
+import com.adzerk.android.sdk.rest.Placement;
+import com.adzerk.android.sdk.rest.Request;
+import com.adzerk.android.sdk.rest.User;
+import com.google.gson.Gson;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Serializes a decision Request through the SDK's Gson, including the flattening of additional options.
+ */
+@State(Scope.Benchmark)
+public class RequestSerializationBenchmark {
+
+    @Param({"1", "10", "100"})
+    int placementCount;
+
+    Gson gson;
+    Request request;
+
+    @Setup
+    public void setUp() {
+        gson = GsonFactory.create();
+
+        Request.Builder builder = new Request.Builder()
+                .setUser(new User("ue1-d720342a233c4631a58dfb6b54f43480"))
+                .addKeywords("sports", "news")
+                .setUrl("https://example.com/feed")
+                .addBlockedCreatives(101, 102, 103)
+                .setFlightViewTimes(1234, 1600000000000L, 1600000060000L)
+                .setConsent(new Consent(true))
+                .addAdditionalOption("intendedLatitude", 35.99f)
+                .addAdditionalOption("intendedLongitude", -78.90f);
+
+        for (int i = 0; i < placementCount; i++) {
+            builder.addPlacement(new Placement("div" + i, 9792L, 306998L, 5, 4)
+                    .addZoneIds(1, 2)
+                    .addEventIds(12, 13)
+                    .addProperty("position", i)
+                    .addProperty("section", "feed")
+                    .addAdditionalOption("skipSelection", false));
+        }
+        request = builder.build();
+    }
+
+    @Benchmark
+    public String serializeRequest() {
+        return gson.toJson(request);
+    }
+}
@@ -0,0 +1,34 @@
+package android.location;
+
+/**
+ * Minimal JVM stand-in for {@code android.location.Location}, covering what the SDK's matchedPoints parsing uses.
+ */
+public class Location {
+    private final String provider;
+    private double latitude;
+    private double longitude;
+
+    public Location(String provider) {
+        this.provider = provider;
+    }
+
+    public String getProvider() {
+        return provider;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(double latitude) {
+        this.latitude = latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(double longitude) {
+        this.longitude = longitude;
+    }
+}
@@ -0,0 +1,8 @@
+package com.adzerk.android.sdk;
+
+/**
+ * JVM stand-in for the BuildConfig generated by the Android build of the sdk module.
+ */
+public final class BuildConfig {
+    public static final String LIBRARY_PACKAGE_NAME = "com.adzerk.android.sdk";
+}
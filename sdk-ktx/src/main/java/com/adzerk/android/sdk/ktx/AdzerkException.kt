@@ -0,0 +1,11 @@
+package com.adzerk.android.sdk.ktx
+
+import com.adzerk.android.sdk.AdzerkSdk
+import java.io.IOException
+
+/**
+ * Thrown by the suspending SDK calls when a call fails.
+ *
+ * @property error error reported by the SDK, with the HTTP status code if a response was received
+ */
+class AdzerkException(val error: AdzerkSdk.AdzerkError) : IOException(error.reason, error.exception)
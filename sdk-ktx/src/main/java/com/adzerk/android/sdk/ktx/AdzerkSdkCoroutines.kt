@@ -0,0 +1,108 @@
+package com.adzerk.android.sdk.ktx
+
+import com.adzerk.android.sdk.AdzerkFuture
+import com.adzerk.android.sdk.AdzerkSdk
+import com.adzerk.android.sdk.rest.DecisionResponse
+import com.adzerk.android.sdk.rest.FirePixelResponse
+import com.adzerk.android.sdk.rest.Request
+import com.adzerk.android.sdk.rest.User
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.suspendCancellableCoroutine
+import kotlin.coroutines.resume
+import kotlin.coroutines.resumeWithException
+
+/**
+ * Suspends until the future completes. Cancelling the coroutine cancels the future and its http call, which
+ * releases the connection right away.
+ *
+ * @throws AdzerkException if the call fails
+ */
+suspend fun <T> AdzerkFuture<T>.await(): T = suspendCancellableCoroutine { continuation ->
+    continuation.invokeOnCancellation { cancel(true) }
+    addListener(object : AdzerkFuture.Listener<T> {
+        override fun success(result: T) {
+            continuation.resume(result)
+        }
+
+        override fun error(error: AdzerkSdk.AdzerkError) {
+            continuation.resumeWithException(AdzerkException(error))
+        }
+    })
+}
+
+/**
+ * Requests ads for the placements of the request.
+ *
+ * @see AdzerkSdk.requestPlacement
+ */
+suspend fun AdzerkSdk.requestPlacement(request: Request): DecisionResponse =
+    requestPlacementAsync(request).await()
+
+/**
+ * Requests ads right away and then every [periodMillis] after the previous response, for as long as the flow is
+ * collected. The request is built by [request] each time, so it can reflect the current user and targeting.
+ *
+ * A failed request ends the flow with an [AdzerkException]; use `retry` or `catch` to keep refreshing.
+ */
+fun AdzerkSdk.placementUpdates(periodMillis: Long, request: () -> Request): Flow<DecisionResponse> {
+    require(periodMillis > 0) { "Period must be positive" }
+    return flow {
+        while (true) {
+            emit(requestPlacement(request()))
+            delay(periodMillis)
+        }
+    }
+}
+
+/**
+ * @see AdzerkSdk.readUser
+ */
+suspend fun AdzerkSdk.readUser(networkId: Long, userKey: String): User =
+    readUserAsync(networkId, userKey).await()
+
+/**
+ * @see AdzerkSdk.setUserProperties
+ */
+suspend fun AdzerkSdk.setUserProperties(networkId: Long, userKey: String, json: String) {
+    setUserPropertiesAsync(networkId, userKey, json).await()
+}
+
+/**
+ * @see AdzerkSdk.setUserProperties
+ */
+suspend fun AdzerkSdk.setUserProperties(networkId: Long, userKey: String, properties: Map<String, Any>) {
+    setUserPropertiesAsync(networkId, userKey, properties).await()
+}
+
+/**
+ * @see AdzerkSdk.setUserInterest
+ */
+suspend fun AdzerkSdk.setUserInterest(networkId: Long, userKey: String, interest: String) {
+    setUserInterestAsync(networkId, userKey, interest).await()
+}
+
+/**
+ * @see AdzerkSdk.setUserOptout
+ */
+suspend fun AdzerkSdk.setUserOptout(networkId: Long, userKey: String) {
+    setUserOptoutAsync(networkId, userKey).await()
+}
+
+/**
+ * @see AdzerkSdk.setUserRetargeting
+ */
+suspend fun AdzerkSdk.setUserRetargeting(networkId: Long, brandId: Long, segment: String, userKey: String) {
+    setUserRetargetingAsync(networkId, brandId, segment, userKey).await()
+}
+
+/**
+ * @see AdzerkSdk.firePixel
+ */
+suspend fun AdzerkSdk.firePixel(
+    url: String,
+    revenue: Float? = null,
+    type: AdzerkSdk.RevenueModifierType? = null,
+    grossMerchandiseValue: Float? = null
+): FirePixelResponse = firePixelAsync(url, revenue, type, grossMerchandiseValue).await()
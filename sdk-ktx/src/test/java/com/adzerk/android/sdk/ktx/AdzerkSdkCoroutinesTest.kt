@@ -0,0 +1,102 @@
+package com.adzerk.android.sdk.ktx
+
+import com.adzerk.android.sdk.AdzerkSdk
+import com.adzerk.android.sdk.rest.Placement
+import com.adzerk.android.sdk.rest.Request
+import kotlinx.coroutines.async
+import kotlinx.coroutines.flow.take
+import kotlinx.coroutines.flow.toList
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.yield
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.SocketPolicy
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.After
+import org.junit.Assert.fail
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import java.util.concurrent.Executor
+import java.util.concurrent.TimeUnit
+
+@RunWith(RobolectricTestRunner::class)
+@Config(sdk = [25], constants = BuildConfig::class)
+class AdzerkSdkCoroutinesTest {
+
+    private lateinit var server: MockWebServer
+    private lateinit var sdk: AdzerkSdk
+
+    @Before
+    fun setUp() {
+        server = MockWebServer()
+        server.start()
+        sdk = AdzerkSdk.Builder()
+            .networkId(23L)
+            .hostname(server.hostName + ":" + server.port)
+            .protocol("http")
+            // deliver on the OkHttp thread rather than the main looper
+            .callbackExecutor(Executor { it.run() })
+            .build()
+    }
+
+    @After
+    fun tearDown() {
+        server.shutdown()
+    }
+
+    @Test
+    fun itShouldResumeWithDecisionResponse() = runBlocking<Unit> {
+        server.enqueue(MockResponse().setBody(DECISION_JSON))
+
+        val response = sdk.requestPlacement(createRequest())
+
+        assertThat(response.user.key).isEqualTo("ue1-abc")
+    }
+
+    @Test
+    fun itShouldThrowAdzerkExceptionOnErrorStatus() = runBlocking<Unit> {
+        server.enqueue(MockResponse().setResponseCode(500))
+
+        try {
+            sdk.requestPlacement(createRequest())
+            fail("expected AdzerkException")
+        } catch (e: AdzerkException) {
+            assertThat(e.error.statusCode).isEqualTo(500)
+        }
+    }
+
+    @Test
+    fun itShouldCancelCallWhenCoroutineIsCancelled() = runBlocking<Unit> {
+        server.enqueue(MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE))
+
+        val deferred = async { sdk.requestPlacement(createRequest()) }
+        yield()
+        assertThat(server.takeRequest(2, TimeUnit.SECONDS)).isNotNull()
+        val start = System.nanoTime()
+        deferred.cancel()
+        deferred.join()
+
+        assertThat(deferred.isCancelled).isTrue()
+        assertThat(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start)).isLessThan(5)
+    }
+
+    @Test
+    fun itShouldRefreshPlacementsPeriodically() = runBlocking<Unit> {
+        server.enqueue(MockResponse().setBody(DECISION_JSON))
+        server.enqueue(MockResponse().setBody(DECISION_JSON))
+
+        val responses = sdk.placementUpdates(10L) { createRequest() }.take(2).toList()
+
+        assertThat(responses).hasSize(2)
+        assertThat(server.requestCount).isEqualTo(2)
+    }
+
+    private fun createRequest() = Request.Builder(listOf(Placement("div1", 9709L, 70464L, 5))).build()
+
+    companion object {
+        const val DECISION_JSON = "{\"user\":{\"key\":\"ue1-abc\"},\"decisions\":{\"div1\":null}}"
+    }
+}
@@ -0,0 +1,242 @@
+package com.adzerk.android.sdk;
+
+import androidx.annotation.Nullable;
+
+import com.adzerk.android.sdk.AdzerkSdk.AdzerkError;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import retrofit2.Call;
+
+/**
+ * Result of an asynchronous SDK call.
+ * <p>
+ * Listeners added with {@link #addListener(Listener)} are called when the call completes, so results can be
+ * combined without blocking a thread; {@link #whenAll(AdzerkFuture[])} completes once several calls have. Cancelling
+ * the future cancels the underlying http call.
+ * <p>
+ * {@code CompletableFuture} needs API 24 while the SDK supports API 22, so this class offers the subset needed to
+ * fan out and join SDK calls. On API 24+ it is easily bridged with a listener that completes a CompletableFuture.
+ *
+ * @param <T> type of the result
+ */
+public class AdzerkFuture<T> implements Future<T> {
+
+    /**
+     * Listener for the completion of a future. A cancelled future reports an error.
+     */
+    public interface Listener<T> {
+        void success(T result);
+        void error(AdzerkError error);
+    }
+
+    private static final int PENDING = 0;
+    private static final int SUCCEEDED = 1;
+    private static final int FAILED = 2;
+    private static final int CANCELLED = 3;
+
+    private int state = PENDING;
+    private T result;
+    private AdzerkError error;
+    @Nullable private Call<?> call;
+    private List<Listener<? super T>> listeners = new ArrayList<>(1);
+
+    AdzerkFuture() {
+    }
+
+    /**
+     * Returns a future that completes when all futures have succeeded, or fails with the first error. Cancelling it
+     * cancels all futures.
+     *
+     * @param futures futures to join
+     * @return joined future
+     */
+    public static AdzerkFuture<Void> whenAll(final AdzerkFuture<?>... futures) {
+        final AdzerkFuture<Void> all = new AdzerkFuture<Void>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                boolean cancelled = super.cancel(mayInterruptIfRunning);
+                for (AdzerkFuture<?> future : futures) {
+                    future.cancel(mayInterruptIfRunning);
+                }
+                return cancelled;
+            }
+        };
+        if (futures.length == 0) {
+            all.complete(null);
+            return all;
+        }
+
+        final int[] remaining = { futures.length };
+        for (AdzerkFuture<?> future : futures) {
+            future.addListener(new Listener<Object>() {
+                @Override
+                public void success(Object result) {
+                    boolean done;
+                    synchronized (remaining) {
+                        done = --remaining[0] == 0;
+                    }
+                    if (done) {
+                        all.complete(null);
+                    }
+                }
+
+                @Override
+                public void error(AdzerkError error) {
+                    all.fail(error);
+                }
+            });
+        }
+        return all;
+    }
+
+    /**
+     * Adds a listener that is called when the future completes, or right away if it already has. The listener is
+     * called on the thread that completes the future, which for SDK calls is the callback executor.
+     *
+     * @param listener completion listener
+     * @return this future
+     */
+    public AdzerkFuture<T> addListener(Listener<? super T> listener) {
+        synchronized (this) {
+            if (state == PENDING) {
+                listeners.add(listener);
+                return this;
+            }
+        }
+        deliver(listener);
+        return this;
+    }
+
+    /**
+     * Cancels the underlying http call, if it has not completed yet. A call shared through request coalescing is
+     * only cancelled once every caller sharing it has cancelled, and a call merged by placement batching is not
+     * cancelled, so the other callers still receive its result.
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        Call<?> toCancel;
+        synchronized (this) {
+            if (state != PENDING) {
+                return false;
+            }
+            toCancel = call;
+        }
+        if (toCancel != null) {
+            toCancel.cancel();
+        }
+        return settle(CANCELLED, null, new AdzerkError(new CancellationException("Cancelled")));
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return state == CANCELLED;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return state != PENDING;
+    }
+
+    /**
+     * Waits for the result. Must not be called on the thread of the SDK callback executor, which by default is the
+     * main thread, since that thread completes the future.
+     */
+    @Override
+    public synchronized T get() throws InterruptedException, ExecutionException {
+        while (state == PENDING) {
+            wait();
+        }
+        return getResult();
+    }
+
+    @Override
+    public synchronized T get(long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (state == PENDING) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new TimeoutException();
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return getResult();
+    }
+
+    // Must hold the lock
+    private T getResult() throws ExecutionException {
+        switch (state) {
+            case SUCCEEDED:
+                return result;
+            case CANCELLED:
+                throw new CancellationException();
+            default:
+                throw new ExecutionException(error.getReason(), error.exception);
+        }
+    }
+
+    /**
+     * Sets the http call that produces the result, so that cancellation reaches it.
+     */
+    void setCall(@Nullable Call<?> call) {
+        boolean cancelled;
+        synchronized (this) {
+            if (state == PENDING) {
+                this.call = call;
+            }
+            cancelled = state == CANCELLED;
+        }
+        if (cancelled && call != null) {
+            call.cancel();
+        }
+    }
+
+    boolean complete(T result) {
+        return settle(SUCCEEDED, result, null);
+    }
+
+    boolean fail(AdzerkError error) {
+        return settle(FAILED, null, error);
+    }
+
+    private boolean settle(int newState, T newResult, AdzerkError newError) {
+        List<Listener<? super T>> toNotify;
+        synchronized (this) {
+            if (state != PENDING) {
+                return false;
+            }
+            state = newState;
+            result = newResult;
+            error = newError;
+            call = null;
+            toNotify = listeners;
+            listeners = null;
+            notifyAll();
+        }
+        for (Listener<? super T> listener : toNotify) {
+            deliver(listener);
+        }
+        return true;
+    }
+
+    private void deliver(Listener<? super T> listener) {
+        T value;
+        AdzerkError failure;
+        synchronized (this) {
+            value = result;
+            failure = state == SUCCEEDED ? null : error;
+        }
+        if (failure == null) {
+            listener.success(value);
+        } else {
+            listener.error(failure);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.adzerk.android.sdk;
+
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Leveled logging for the SDK.
+ * <p>
+ * Messages are passed as a format string and arguments, and are only formatted when their level is enabled, so
+ * disabled log statements build no strings. By default warnings and errors go to logcat.
+ * <p>
+ * An optional ring buffer keeps the most recent SDK events at debug level and above, even when they are not sent to
+ * logcat, so they can be dumped when investigating a problem in production. Events are stored without formatting
+ * in preallocated slots and formatted only by {@link #getRecentEvents()}.
+ */
+public final class AdzerkLog {
+
+    /**
+     * Level that disables logging to logcat
+     */
+    public static final int NONE = Integer.MAX_VALUE;
+
+    private static volatile int level = Log.WARN;
+    private static volatile int minLevel = Log.WARN;
+    @Nullable private static volatile RingBuffer buffer;
+
+    private AdzerkLog() {
+    }
+
+    /**
+     * Sets the minimum level of messages sent to logcat. Defaults to {@link Log#WARN}.
+     *
+     * @param level one of the {@link Log} levels, or {@link #NONE}
+     */
+    public static synchronized void setLevel(int level) {
+        AdzerkLog.level = level;
+        updateMinLevel();
+    }
+
+    /**
+     * Keeps the given number of recent SDK events in memory. Pass 0 to disable, which is the default.
+     *
+     * @param capacity number of events kept
+     */
+    public static synchronized void setBufferCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative");
+        }
+        buffer = capacity > 0 ? new RingBuffer(capacity) : null;
+        updateMinLevel();
+    }
+
+    /**
+     * Returns the buffered SDK events, oldest first.
+     *
+     * @return formatted events, empty if the buffer is disabled
+     * @see #setBufferCapacity(int)
+     */
+    public static List<String> getRecentEvents() {
+        RingBuffer ringBuffer = buffer;
+        return ringBuffer != null ? ringBuffer.dump() : new ArrayList<String>();
+    }
+
+    private static void updateMinLevel() {
+        minLevel = buffer != null ? Math.min(level, Log.DEBUG) : level;
+    }
+
+    /**
+     * Returns true if messages of the level are logged or buffered. Use it to guard log statements whose
+     * arguments are costly to compute or box.
+     */
+    static boolean isLoggable(int level) {
+        return level >= minLevel;
+    }
+
+    static void d(String tag, String message) {
+        log(Log.DEBUG, tag, message, null, null, null);
+    }
+
+    static void d(String tag, String format, Object arg) {
+        log(Log.DEBUG, tag, format, arg, null, null);
+    }
+
+    static void d(String tag, String format, Object arg1, Object arg2) {
+        log(Log.DEBUG, tag, format, arg1, arg2, null);
+    }
+
+    static void i(String tag, String format, Object arg) {
+        log(Log.INFO, tag, format, arg, null, null);
+    }
+
+    static void w(String tag, String message) {
+        log(Log.WARN, tag, message, null, null, null);
+    }
+
+    static void w(String tag, String format, Object arg) {
+        log(Log.WARN, tag, format, arg, null, null);
+    }
+
+    static void w(String tag, String format, Object arg1, Object arg2) {
+        log(Log.WARN, tag, format, arg1, arg2, null);
+    }
+
+    static void w(String tag, String message, Throwable t) {
+        log(Log.WARN, tag, message, null, null, t);
+    }
+
+    static void w(String tag, String format, Object arg, Throwable t) {
+        log(Log.WARN, tag, format, arg, null, t);
+    }
+
+    static void e(String tag, String format, Object arg) {
+        log(Log.ERROR, tag, format, arg, null, null);
+    }
+
+    static void e(String tag, String message, Throwable t) {
+        log(Log.ERROR, tag, message, null, null, t);
+    }
+
+    static void e(String tag, String format, Object arg, Throwable t) {
+        log(Log.ERROR, tag, format, arg, null, t);
+    }
+
+    private static void log(int priority, String tag, String format, @Nullable Object arg1, @Nullable Object arg2,
+                            @Nullable Throwable t) {
+        if (priority < minLevel) {
+            return;
+        }
+        RingBuffer ringBuffer = buffer;
+        if (ringBuffer != null) {
+            ringBuffer.add(priority, tag, format, arg1, arg2, t);
+        }
+        if (priority >= level) {
+            String message = format(format, arg1, arg2);
+            switch (priority) {
+                case Log.VERBOSE: Log.v(tag, message, t); break;
+                case Log.DEBUG: Log.d(tag, message, t); break;
+                case Log.INFO: Log.i(tag, message, t); break;
+                case Log.WARN: Log.w(tag, message, t); break;
+                default: Log.e(tag, message, t); break;
+            }
+        }
+    }
+
+    private static String format(String format, @Nullable Object arg1, @Nullable Object arg2) {
+        if (format.indexOf('%') < 0) {
+            return format;
+        }
+        return String.format(Locale.US, format, arg1, arg2);
+    }
+
+    // Fixed size buffer of unformatted events, the oldest event is overwritten when full
+    private static class RingBuffer {
+        private final long[] times;
+        private final int[] priorities;
+        private final String[] tags;
+        private final String[] formats;
+        private final Object[] args1;
+        private final Object[] args2;
+        private final Throwable[] throwables;
+        private int next;
+        private int count;
+
+        RingBuffer(int capacity) {
+            times = new long[capacity];
+            priorities = new int[capacity];
+            tags = new String[capacity];
+            formats = new String[capacity];
+            args1 = new Object[capacity];
+            args2 = new Object[capacity];
+            throwables = new Throwable[capacity];
+        }
+
+        synchronized void add(int priority, String tag, String format, @Nullable Object arg1, @Nullable Object arg2,
+                              @Nullable Throwable t) {
+            times[next] = System.currentTimeMillis();
+            priorities[next] = priority;
+            tags[next] = tag;
+            formats[next] = format;
+            args1[next] = arg1;
+            args2[next] = arg2;
+            throwables[next] = t;
+            next = (next + 1) % times.length;
+            count = Math.min(count + 1, times.length);
+        }
+
+        synchronized List<String> dump() {
+            SimpleDateFormat dateFormat = new SimpleDateFormat("HH:mm:ss.SSS", Locale.US);
+            List<String> events = new ArrayList<>(count);
+            int first = (next - count + times.length) % times.length;
+            for (int i = 0; i < count; i++) {
+                int slot = (first + i) % times.length;
+                StringBuilder event = new StringBuilder()
+                        .append(dateFormat.format(new Date(times[slot])))
+                        .append(' ').append(levelName(priorities[slot]))
+                        .append('/').append(tags[slot])
+                        .append(": ").append(format(formats[slot], args1[slot], args2[slot]));
+                if (throwables[slot] != null) {
+                    event.append(" (").append(throwables[slot]).append(')');
+                }
+                events.add(event.toString());
+            }
+            return events;
+        }
+
+        private static char levelName(int priority) {
+            switch (priority) {
+                case Log.VERBOSE: return 'V';
+                case Log.DEBUG: return 'D';
+                case Log.INFO: return 'I';
+                case Log.WARN: return 'W';
+                default: return 'E';
+            }
+        }
+    }
+}
@@ -2,32 +2,33 @@ package com.adzerk.android.sdk;
 
 import android.text.TextUtils;
 import android.util.Log;
-
 import androidx.annotation.Nullable;
 
-import com.adzerk.android.sdk.gson.FlattenTypeAdapterFactory;
+import com.adzerk.android.sdk.gson.GsonFactory;
 import com.adzerk.android.sdk.rest.AdzerkService;
-import com.adzerk.android.sdk.rest.ContentData;
+import com.adzerk.android.sdk.rest.Decision;
 import com.adzerk.android.sdk.rest.DecisionResponse;
 import com.adzerk.android.sdk.rest.FirePixelResponse;
 import com.adzerk.android.sdk.rest.Placement;
 import com.adzerk.android.sdk.rest.Request;
 import com.adzerk.android.sdk.rest.User;
-import com.adzerk.android.sdk.rest.UserProperties;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonDeserializer;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParseException;
 
+import java.io.File;
 import java.io.IOException;
-import java.lang.reflect.Type;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.List;
 import java.util.Map;
-
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.HttpUrl;
 import okhttp3.Interceptor;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
@@ -36,6 +37,7 @@ import okhttp3.ResponseBody;
 import okhttp3.logging.HttpLoggingInterceptor;
 import retrofit2.Call;
 import retrofit2.Callback;
+import retrofit2.Converter;
 import retrofit2.Response;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
@@ -70,6 +72,34 @@ public class AdzerkSdk {
 
     AdzerkService service;
     OkHttpClient client;
+    Gson gson;
+
+    OkHttpClient sharedClient;
+    int maxRequests;
+    int maxRequestsPerHost;
+    ConnectionPool connectionPool;
+
+    int pixelConcurrency = PixelDispatcher.DEFAULT_MAX_CONCURRENCY;
+    int pixelQueueCapacity = PixelDispatcher.DEFAULT_QUEUE_CAPACITY;
+    PixelDispatcher pixelDispatcher;
+    PixelJournal pixelJournal;
+    PixelBatcher pixelBatcher;
+    ScheduledExecutorService scheduler;
+    RequestCoalescer requestCoalescer;
+    PlacementAggregator placementAggregator;
+    DecisionCache decisionCache;
+    MetricsRecorder metricsRecorder;
+    final RequestHandle.Registry requestHandles = new RequestHandle.Registry();
+    Executor callbackExecutor;
+    long decisionTimeoutMillis;
+    long userDbTimeoutMillis;
+    long pixelTimeoutMillis;
+    okhttp3.Call.Factory callFactory;
+    RequestHedger requestHedger;
+    AdzerkService hedgeService;
+    FrequencyCapStore frequencyCapStore;
+    RequestBodyEncoder requestBodyEncoder;
+    GzipRequestInterceptor gzipInterceptor;
 
     /**
      * Errors returned from Adzerk API calls.
@@ -77,14 +107,17 @@ public class AdzerkSdk {
     public static class AdzerkError {
         int statusCode;
         String reason;
+        Throwable exception;
 
         public AdzerkError(int statusCode, String reason, Exception exception) {
             this.statusCode = statusCode;
             this.reason = reason;
+            this.exception = exception;
         }
 
         public AdzerkError(Throwable t) {
             this.reason = t.getMessage();
+            this.exception = t;
         }
 
         public int getStatusCode() {
@@ -94,6 +127,15 @@ public class AdzerkSdk {
         public String getReason() {
             return reason;
         }
+
+        /**
+         * Returns the exception that caused the error, if any
+         * @return cause or null
+         */
+        @Nullable
+        public Throwable getException() {
+            return exception;
+        }
     }
 
     private interface AdzerkCallbackListener<T> {
@@ -119,6 +161,20 @@ public class AdzerkSdk {
     public interface UserListener extends AdzerkCallbackListener<User> {
     }
 
+    /**
+     * Listener for the timing of the connection warm-up
+     */
+    public interface WarmUpListener extends AdzerkCallbackListener<WarmUpTiming> {
+    }
+
+    /**
+     * Listener for the timings and payload sizes of SDK calls. Invoked on the thread that completes the call, so
+     * implementations should be fast and thread safe.
+     */
+    public interface MetricsListener {
+        void onCallMetrics(CallMetrics metrics);
+    }
+
     /**
      * Used for modifying revenue when firing click/event urls.
      *   OVERRIDE -replaces the revenue value of the click/event
@@ -137,6 +193,34 @@ public class AdzerkSdk {
         private long networkId;
         private String hostname;
         private String protocol = "https";
+        private OkHttpClient sharedClient;
+        private int maxRequests;
+        private int maxRequestsPerHost;
+        private ConnectionPool connectionPool;
+        private boolean warmUp;
+        private MetricsListener metricsListener;
+        private Executor callbackExecutor;
+        private long decisionTimeoutMillis;
+        private long userDbTimeoutMillis;
+        private long pixelTimeoutMillis;
+        private int hedgePercentile;
+        private long hedgeInitialDelayMillis;
+        private int maxViewsPerFlight;
+        private long maxViewAgeMillis;
+        private boolean reuseRequestJson;
+        private int gzipMinBytes;
+        private int gzipLevel;
+        private WarmUpListener warmUpListener;
+        private int pixelConcurrency = PixelDispatcher.DEFAULT_MAX_CONCURRENCY;
+        private int pixelQueueCapacity = PixelDispatcher.DEFAULT_QUEUE_CAPACITY;
+        private File pixelJournalDirectory;
+        private long pixelFlushWindowMillis;
+        private int pixelMaxBatchSize;
+        private boolean coalesceRequests;
+        private long placementWindowMillis;
+        private int maxBatchedPlacements;
+        private int decisionCacheSize;
+        private long decisionCacheTtlMillis;
 
         public Builder() {
         }
@@ -156,12 +240,404 @@ public class AdzerkSdk {
             return this;
         }
 
+        /**
+         * Shares the app's http client with the SDK. The SDK derives its own client from it with
+         * {@link OkHttpClient#newBuilder()}, so both use the same connection pool and dispatcher threads and no
+         * second set of TLS connections is opened. The SDK's interceptors and redirect setting are not added to the
+         * app's client.
+         *
+         * @param client the app's http client
+         * @return sdk builder
+         */
+        public Builder httpClient(OkHttpClient client) {
+            this.sharedClient = client;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of concurrent requests to a single host. All SDK traffic usually goes to the same
+         * decision host, so this caps decisions, UserDB calls and pixels together. Defaults to OkHttp's limit of 5.
+         * <p>
+         * When an app client is shared with {@link #httpClient(OkHttpClient)} the SDK applies its limits to a
+         * dispatcher of its own, which still runs on the app client's threads.
+         *
+         * @param maxRequestsPerHost maximum concurrent requests per host
+         * @return sdk builder
+         */
+        public Builder maxRequestsPerHost(int maxRequestsPerHost) {
+            if (maxRequestsPerHost < 1) {
+                throw new IllegalArgumentException("maxRequestsPerHost must be at least 1");
+            }
+            this.maxRequestsPerHost = maxRequestsPerHost;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of concurrent requests across all hosts. Defaults to OkHttp's limit of 64.
+         *
+         * @param maxRequests maximum concurrent requests
+         * @return sdk builder
+         */
+        public Builder maxRequests(int maxRequests) {
+            if (maxRequests < 1) {
+                throw new IllegalArgumentException("maxRequests must be at least 1");
+            }
+            this.maxRequests = maxRequests;
+            return this;
+        }
+
+        /**
+         * Sets how many idle connections are kept alive, and for how long. Defaults to OkHttp's pool of 5 idle
+         * connections kept for 5 minutes. Can not be combined with {@link #httpClient(OkHttpClient)}, which shares
+         * the app client's pool.
+         *
+         * @param maxIdleConnections maximum number of idle connections
+         * @param keepAliveDuration  how long an idle connection is kept
+         * @param timeUnit           unit of the keep alive duration
+         * @return sdk builder
+         */
+        public Builder connectionPool(int maxIdleConnections, long keepAliveDuration, TimeUnit timeUnit) {
+            if (maxIdleConnections < 0) {
+                throw new IllegalArgumentException("maxIdleConnections must not be negative");
+            }
+            this.connectionPool = new ConnectionPool(maxIdleConnections, keepAliveDuration, timeUnit);
+            return this;
+        }
+
+        /**
+         * Warms up the connection to the decision host in the background when the SDK is built. The hostname is
+         * resolved and a pooled connection is opened, so the first decision request skips the DNS, TCP and TLS
+         * round trips.
+         *
+         * @param listener receives the warm-up timing, may be null
+         * @return sdk builder
+         */
+        public Builder warmUp(@Nullable WarmUpListener listener) {
+            this.warmUp = true;
+            this.warmUpListener = listener;
+            return this;
+        }
+
+        /**
+         * Reports the timings and payload sizes of every call made by the SDK: DNS, connect, TLS, time to first
+         * byte, body read, JSON parse and listener dispatch, tagged by operation name such as "RequestPlacement".
+         * <p>
+         * The listener is installed as the OkHttp {@link okhttp3.EventListener} of the SDK http client, replacing
+         * any event listener of a shared client for the calls made by the SDK.
+         *
+         * @param listener metrics listener
+         * @return sdk builder
+         */
+        public Builder metricsListener(MetricsListener listener) {
+            if (listener == null) {
+                throw new IllegalArgumentException("MetricsListener must not be null");
+            }
+            this.metricsListener = listener;
+            return this;
+        }
+
+        /**
+         * Sets the timeout of decision requests, covering the whole call from connecting until the response has been
+         * read. Defaults to none, leaving only the connect, read and write timeouts of the http client.
+         * See also {@link AdzerkSdk#requestPlacement(Request, DecisionListener, long, TimeUnit)} for a deadline per
+         * request.
+         *
+         * @param timeout timeout, 0 for none
+         * @param unit    unit of the timeout
+         * @return sdk builder
+         */
+        public Builder decisionTimeout(long timeout, TimeUnit unit) {
+            this.decisionTimeoutMillis = toTimeoutMillis(timeout, unit);
+            return this;
+        }
+
+        /**
+         * Sets the timeout of UserDB calls, covering the whole call. Defaults to none.
+         *
+         * @param timeout timeout, 0 for none
+         * @param unit    unit of the timeout
+         * @return sdk builder
+         */
+        public Builder userDbTimeout(long timeout, TimeUnit unit) {
+            this.userDbTimeoutMillis = toTimeoutMillis(timeout, unit);
+            return this;
+        }
+
+        /**
+         * Sets the timeout of pixels and impressions, covering the whole call. Defaults to none.
+         *
+         * @param timeout timeout, 0 for none
+         * @param unit    unit of the timeout
+         * @return sdk builder
+         */
+        public Builder pixelTimeout(long timeout, TimeUnit unit) {
+            this.pixelTimeoutMillis = toTimeoutMillis(timeout, unit);
+            return this;
+        }
+
+        /**
+         * Sets the executor that calls SDK listeners. By default listeners are called on the Android main thread.
+         * Pass an executor of the app to keep listener work off both the main thread and the http client threads,
+         * or a direct executor ({@code Runnable::run}) to call listeners on the http client thread.
+         * <p>
+         * Listeners of decisions served from the prefetch cache are called on the thread requesting them.
+         *
+         * @param executor callback executor
+         * @return sdk builder
+         */
+        public Builder callbackExecutor(Executor executor) {
+            if (executor == null) {
+                throw new IllegalArgumentException("Callback executor must not be null");
+            }
+            this.callbackExecutor = executor;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of impression pixels fired concurrently. Defaults to 2.
+         *
+         * @param pixelConcurrency number of pixel worker threads
+         * @return sdk builder
+         */
+        public Builder pixelConcurrency(int pixelConcurrency) {
+            if (pixelConcurrency < 1) {
+                throw new IllegalArgumentException("pixelConcurrency must be at least 1");
+            }
+            this.pixelConcurrency = pixelConcurrency;
+            return this;
+        }
+
+        /**
+         * Sets the number of impression pixels that may wait for a free worker. When the queue is full,
+         * {@link AdzerkSdk#impression(String)} rejects the pixel and returns false. Defaults to 64.
+         *
+         * @param pixelQueueCapacity maximum number of queued pixels
+         * @return sdk builder
+         */
+        public Builder pixelQueueCapacity(int pixelQueueCapacity) {
+            if (pixelQueueCapacity < 1) {
+                throw new IllegalArgumentException("pixelQueueCapacity must be at least 1");
+            }
+            this.pixelQueueCapacity = pixelQueueCapacity;
+            return this;
+        }
+
+        /**
+         * Enables the durable pixel journal. Impression and tracking pixels are written to a journal file in the
+         * given directory before they are fired, and pixels that fail with a network error or a server error are
+         * retried with exponential backoff, including after the app restarts.
+         * <p>
+         * Typically {@code new File(context.getFilesDir(), "adzerk")}. Call {@link AdzerkSdk#flushPendingPixels()}
+         * when connectivity is restored to retry immediately.
+         *
+         * @param directory directory to hold the journal file
+         * @return sdk builder
+         */
+        public Builder pixelJournal(File directory) {
+            this.pixelJournalDirectory = directory;
+            return this;
+        }
+
+        /**
+         * Enables batching of pixels fired with {@link AdzerkSdk#firePixel(String, FirePixelListener)}. Pixels fired
+         * within the flush window are held and sent together once the window elapses or the batch is full, so that
+         * bursts of events share one radio wake-up and one pooled connection. Each listener still receives the
+         * result of its own pixel.
+         *
+         * @param flushWindowMillis how long a pixel may wait for others before the batch is sent, e.g. 250
+         * @param maxBatchSize      number of pixels that sends the batch right away, e.g. 10
+         * @return sdk builder
+         */
+        public Builder pixelBatching(long flushWindowMillis, int maxBatchSize) {
+            if (flushWindowMillis < 1) {
+                throw new IllegalArgumentException("flushWindowMillis must be at least 1");
+            }
+            if (maxBatchSize < 1) {
+                throw new IllegalArgumentException("maxBatchSize must be at least 1");
+            }
+            this.pixelFlushWindowMillis = flushWindowMillis;
+            this.pixelMaxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        /**
+         * Enables batching of pixels with a 250ms flush window and batches of up to 10 pixels.
+         *
+         * @return sdk builder
+         * @see #pixelBatching(long, int)
+         */
+        public Builder pixelBatching() {
+            return pixelBatching(PixelBatcher.DEFAULT_FLUSH_WINDOW_MILLIS, PixelBatcher.DEFAULT_MAX_BATCH_SIZE);
+        }
+
+        /**
+         * Enables coalescing of identical decision requests. While a {@link AdzerkSdk#requestPlacement} call is in
+         * flight, further calls with a structurally identical Request share its network call, and every listener
+         * receives the same DecisionResponse. Defaults to false.
+         *
+         * @param coalesceRequests true to share in-flight decision requests
+         * @return sdk builder
+         */
+        public Builder coalesceRequests(boolean coalesceRequests) {
+            this.coalesceRequests = coalesceRequests;
+            return this;
+        }
+
+        /**
+         * Enables merging of decision requests. Requests made with {@link AdzerkSdk#requestPlacement} within the
+         * window are combined into a single multi-placement Request when they share the same user, keywords,
+         * consent, url and additional options. Each listener receives a DecisionResponse holding only the
+         * decisions for its own placements. Placement names must be unique across the merged requests; a request
+         * reusing a pending name is sent in a separate batch.
+         *
+         * @param windowMillis  how long a request may wait for others before it is sent, e.g. 10
+         * @param maxPlacements number of placements that sends the merged request right away, e.g. 16
+         * @return sdk builder
+         */
+        public Builder placementBatching(long windowMillis, int maxPlacements) {
+            if (windowMillis < 1) {
+                throw new IllegalArgumentException("windowMillis must be at least 1");
+            }
+            if (maxPlacements < 1) {
+                throw new IllegalArgumentException("maxPlacements must be at least 1");
+            }
+            this.placementWindowMillis = windowMillis;
+            this.maxBatchedPlacements = maxPlacements;
+            return this;
+        }
+
+        /**
+         * Enables merging of decision requests made within 10ms of each other, up to 16 placements per request.
+         *
+         * @return sdk builder
+         * @see #placementBatching(long, int)
+         */
+        public Builder placementBatching() {
+            return placementBatching(PlacementAggregator.DEFAULT_WINDOW_MILLIS,
+                    PlacementAggregator.DEFAULT_MAX_PLACEMENTS);
+        }
+
+        /**
+         * Enables hedging of decision requests to cut tail latency. When a request made with
+         * {@link AdzerkSdk#requestPlacement} has no response after the hedge delay, a duplicate request is sent on a
+         * fresh connection and the first response is delivered, cancelling the other call. The delay is the given
+         * percentile of recent decision latencies, so only the slowest requests are duplicated. This is safe because
+         * decisions do not count impressions until their impression url is fired.
+         *
+         * @param percentile         percentile of recent latencies used as the hedge delay, e.g. 95
+         * @param initialDelayMillis hedge delay until enough latencies have been sampled, e.g. 500
+         * @return sdk builder
+         */
+        public Builder hedgeRequests(int percentile, long initialDelayMillis) {
+            if (percentile < 1 || percentile > 99) {
+                throw new IllegalArgumentException("percentile must be between 1 and 99");
+            }
+            if (initialDelayMillis < 1) {
+                throw new IllegalArgumentException("initialDelayMillis must be at least 1");
+            }
+            this.hedgePercentile = percentile;
+            this.hedgeInitialDelayMillis = initialDelayMillis;
+            return this;
+        }
+
+        /**
+         * Enables the local frequency cap store. Every impression fired with {@link AdzerkSdk#impression(Decision)}
+         * records a view of the decision's flight, and the views that still count are attached to later decision
+         * requests as flight view times, so frequency caps apply without reading the user from UserDB first. Flight
+         * view times set on a Request take precedence for their flights.
+         *
+         * @param maxViewsPerFlight number of most recent views kept per flight, e.g. 10
+         * @param maxAgeMillis      age after which a view no longer counts, e.g. the longest cap interval
+         * @return sdk builder
+         */
+        public Builder frequencyCapping(int maxViewsPerFlight, long maxAgeMillis) {
+            if (maxViewsPerFlight < 1) {
+                throw new IllegalArgumentException("maxViewsPerFlight must be at least 1");
+            }
+            if (maxAgeMillis < 1) {
+                throw new IllegalArgumentException("maxAgeMillis must be at least 1");
+            }
+            this.maxViewsPerFlight = maxViewsPerFlight;
+            this.maxViewAgeMillis = maxAgeMillis;
+            return this;
+        }
+
+        /**
+         * Enables reuse of the JSON written for decision requests. The JSON of each User, Consent and Placement is
+         * kept after a request is sent, and a later request carrying the same object unchanged reuses it instead of
+         * serializing the object again. Useful when the same placements are requested repeatedly, e.g. on every
+         * screen refresh. Objects must only be changed through their setters and adders; a change made through a
+         * collection returned by a getter is not noticed. Defaults to false.
+         *
+         * @param reuseRequestJson true to reuse the JSON of unchanged request objects
+         * @return sdk builder
+         */
+        public Builder reuseRequestJson(boolean reuseRequestJson) {
+            this.reuseRequestJson = reuseRequestJson;
+            return this;
+        }
+
+        /**
+         * Enables gzip compression of request bodies. Decision requests and custom user properties posted to UserDB
+         * are compressed when their body is at least the given size, which cuts upload time for requests with many
+         * placements, properties or blocked creatives on slow networks. The bytes saved are reported in
+         * {@link CallMetrics#getUncompressedRequestBytes()}. Defaults to off.
+         *
+         * @param minBytes smallest body size that is compressed, e.g. 1024
+         * @param level    deflate compression level, from 1 (fastest) to 9 (smallest), e.g. 6
+         * @return sdk builder
+         */
+        public Builder gzipRequests(int minBytes, int level) {
+            if (minBytes < 0) {
+                throw new IllegalArgumentException("minBytes must not be negative");
+            }
+            if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+                throw new IllegalArgumentException("level must be between 1 and 9");
+            }
+            this.gzipMinBytes = minBytes;
+            this.gzipLevel = level;
+            return this;
+        }
+
+        /**
+         * Enables the cache for decisions fetched ahead of time with {@link AdzerkSdk#prefetchPlacements(Request)}.
+         * A later {@link AdzerkSdk#requestPlacement} for the same placements is answered from the cache without a
+         * network call. Each prefetched decision is delivered at most once and only within its time to live.
+         *
+         * @param maxEntries maximum number of cached placements, e.g. 32
+         * @param ttlMillis  how long a prefetched decision may be shown, e.g. 300000
+         * @return sdk builder
+         */
+        public Builder decisionCache(int maxEntries, long ttlMillis) {
+            if (maxEntries < 1) {
+                throw new IllegalArgumentException("maxEntries must be at least 1");
+            }
+            if (ttlMillis < 1) {
+                throw new IllegalArgumentException("ttlMillis must be at least 1");
+            }
+            this.decisionCacheSize = maxEntries;
+            this.decisionCacheTtlMillis = ttlMillis;
+            return this;
+        }
+
+        /**
+         * Enables the decision cache with up to 32 placements that are kept for 5 minutes.
+         *
+         * @return sdk builder
+         * @see #decisionCache(int, long)
+         */
+        public Builder decisionCache() {
+            return decisionCache(DecisionCache.DEFAULT_MAX_ENTRIES, DecisionCache.DEFAULT_TTL_MILLIS);
+        }
+
         public AdzerkSdk build() {
             if (this.networkId == 0L) {
                 throw new IllegalStateException("A networkId is required");
             }
-            String baseUrl = createBaseUrl();
-            return new AdzerkSdk(baseUrl, this.networkId);
+            if (this.sharedClient != null && this.connectionPool != null) {
+                throw new IllegalStateException("A connectionPool can not be set when sharing an httpClient");
+            }
+            return new AdzerkSdk(this);
         }
 
         private String createBaseUrl() {
@@ -193,10 +669,78 @@ public class AdzerkSdk {
         return new AdzerkSdk(null, client);
     }
 
-    private AdzerkSdk(String baseUrl, long networkId) {
-        this.baseUrl = baseUrl;
-        this.defaultNetworkId = networkId;
+    private AdzerkSdk(Builder builder) {
+        this.baseUrl = builder.createBaseUrl();
+        this.defaultNetworkId = builder.networkId;
+        this.sharedClient = builder.sharedClient;
+        this.maxRequests = builder.maxRequests;
+        this.maxRequestsPerHost = builder.maxRequestsPerHost;
+        this.connectionPool = builder.connectionPool;
+        this.pixelConcurrency = builder.pixelConcurrency;
+        this.pixelQueueCapacity = builder.pixelQueueCapacity;
+        if (builder.metricsListener != null) {
+            this.metricsRecorder = new MetricsRecorder(builder.metricsListener);
+        }
+        this.callbackExecutor = builder.callbackExecutor;
+        this.decisionTimeoutMillis = builder.decisionTimeoutMillis;
+        this.userDbTimeoutMillis = builder.userDbTimeoutMillis;
+        this.pixelTimeoutMillis = builder.pixelTimeoutMillis;
+        if (builder.gzipLevel > 0) {
+            this.gzipInterceptor = new GzipRequestInterceptor(builder.gzipMinBytes, builder.gzipLevel, metricsRecorder);
+        }
+        if (builder.reuseRequestJson) {
+            this.requestBodyEncoder = new RequestBodyEncoder(getGson());
+        }
         service = getAdzerkService();
+
+        if (builder.warmUp) {
+            HttpUrl url = HttpUrl.parse(baseUrl);
+            if (url != null) {
+                getHttpClient().dispatcher().executorService()
+                        .execute(new ConnectionWarmer(getHttpClient(), url, builder.warmUpListener, callbackExecutor));
+            }
+        }
+
+        if (builder.decisionCacheSize > 0) {
+            decisionCache = new DecisionCache(getGson(), builder.decisionCacheSize, builder.decisionCacheTtlMillis);
+        }
+
+        if (builder.coalesceRequests) {
+            requestCoalescer = new RequestCoalescer();
+        }
+
+        if (builder.maxViewsPerFlight > 0) {
+            frequencyCapStore = new FrequencyCapStore(builder.maxViewsPerFlight, builder.maxViewAgeMillis);
+        }
+
+        if (builder.hedgePercentile > 0) {
+            requestHedger = new RequestHedger(getScheduler(), builder.hedgePercentile, builder.hedgeInitialDelayMillis,
+                    metricsRecorder);
+        }
+
+        if (builder.maxBatchedPlacements > 0) {
+            placementAggregator = new PlacementAggregator(getScheduler(), getGson(), builder.placementWindowMillis,
+                    builder.maxBatchedPlacements, new PlacementAggregator.RequestSender() {
+                        @Override
+                        public void send(Request request, @Nullable DecisionListener listener) {
+                            sendRequest(request, listener);
+                        }
+                    });
+        }
+
+        if (builder.pixelMaxBatchSize > 0) {
+            pixelBatcher = new PixelBatcher(getScheduler(), builder.pixelFlushWindowMillis, builder.pixelMaxBatchSize);
+        }
+
+        if (builder.pixelJournalDirectory != null) {
+            try {
+                pixelJournal = new PixelJournal(builder.pixelJournalDirectory);
+                // replays any pixels left over from a previous session
+                getPixelDispatcher();
+            } catch (IOException e) {
+                AdzerkLog.e(TAG, "Failed to open pixel journal, pixels will not be retried", e);
+            }
+        }
     }
 
     // Internal use - support for unit tests
@@ -210,18 +754,160 @@ public class AdzerkSdk {
     /**
      * Send a request to the Native Ads API.
      * This is an asynchronous request, results will be returned to the given listener.
+     * <p>
+     * When {@link Builder#coalesceRequests(boolean)} is enabled and an identical request is already in flight,
+     * no new call is made and the listener receives the response of the in-flight request. When
+     * {@link Builder#placementBatching(long, int)} is enabled the request may be merged with others made shortly
+     * after it.
+     * <p>
+     * When all placements were prefetched with {@link #prefetchPlacements(Request)}, the listener is called
+     * synchronously with the cached decisions.
      *
      * @param request ad Request specifying one or more Placements
      * @param listener Can be null, but caller will never get notifications.
+     * @return handle to cancel the request
      */
-    public void requestPlacement(Request request, @Nullable final DecisionListener listener) {
-        for (Placement p : request.getPlacements()) {
-            if (p.getNetworkId() == 0L) {
-                p.setNetworkId(this.defaultNetworkId);
+    public RequestHandle requestPlacement(Request request, @Nullable DecisionListener listener) {
+        return requestPlacement(request, listener, null);
+    }
+
+    /**
+     * Request an ad for one or more placements, tagging the request so it can be cancelled together with others
+     * using {@link #cancelAll(Object)}. See {@link #requestPlacement(Request, DecisionListener)}.
+     *
+     * @param request ad Request specifying one or more Placements
+     * @param listener Can be null, but caller will never get notifications.
+     * @param tag identifies a group of requests, such as the Activity showing the ads, may be null
+     * @return handle to cancel the request
+     */
+    public RequestHandle requestPlacement(Request request, @Nullable DecisionListener listener, @Nullable Object tag) {
+        return requestPlacement(request, listener, tag, 0);
+    }
+
+    /**
+     * Request an ad for one or more placements within a deadline, such as the time budget to fill an ad slot. The
+     * deadline covers the whole call, and the listener receives an error once it has passed. See
+     * {@link #requestPlacement(Request, DecisionListener)}.
+     * <p>
+     * A request with a deadline is sent on its own: it is neither shared with identical requests in flight nor
+     * merged with other requests, since their call could not honour its deadline.
+     *
+     * @param request ad Request specifying one or more Placements
+     * @param listener Can be null, but caller will never get notifications.
+     * @param timeout deadline of the request
+     * @param unit unit of the deadline
+     * @return handle to cancel the request
+     */
+    public RequestHandle requestPlacement(Request request, @Nullable DecisionListener listener, long timeout, TimeUnit unit) {
+        return requestPlacement(request, listener, null, toTimeoutMillis(timeout, unit));
+    }
+
+    private RequestHandle requestPlacement(Request request, @Nullable DecisionListener listener, @Nullable Object tag,
+                                           long timeoutMillis) {
+        RequestHandle handle = new RequestHandle(tag, requestHandles);
+        if (tag != null) {
+            requestHandles.add(handle);
+        }
+        handle.setCall(placeRequest(request, handle.wrap(listener), timeoutMillis));
+        return handle;
+    }
+
+    /**
+     * Cancels all pending decision requests made with the given tag. Their listeners are not called.
+     *
+     * @param tag tag passed to {@link #requestPlacement(Request, DecisionListener, Object)}
+     */
+    public void cancelAll(Object tag) {
+        requestHandles.cancelAll(tag);
+    }
+
+    /**
+     * Request an ad for one or more placements, returning a future for the response. Cancelling the future cancels
+     * the http call. See {@link #requestPlacement(Request, DecisionListener)}.
+     *
+     * @param request ad Request specifying one or more Placements
+     * @return future DecisionResponse
+     */
+    public AdzerkFuture<DecisionResponse> requestPlacementAsync(Request request) {
+        return requestPlacementAsync(request, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Request an ad for one or more placements within a deadline, returning a future for the response. See
+     * {@link #requestPlacement(Request, DecisionListener, long, TimeUnit)}.
+     *
+     * @param request ad Request specifying one or more Placements
+     * @param timeout deadline of the request, 0 for none
+     * @param unit unit of the deadline
+     * @return future DecisionResponse
+     */
+    public AdzerkFuture<DecisionResponse> requestPlacementAsync(Request request, long timeout, TimeUnit unit) {
+        final AdzerkFuture<DecisionResponse> future = new AdzerkFuture<>();
+        future.setCall(placeRequest(request, new DecisionListener() {
+            @Override
+            public void success(DecisionResponse response) {
+                future.complete(response);
+            }
+
+            @Override
+            public void error(AdzerkError error) {
+                future.fail(error);
+            }
+        }, toTimeoutMillis(timeout, unit)));
+        return future;
+    }
+
+    // Returns the call of the request, or null if it was served from cache or batched
+    @Nullable
+    private Call<DecisionResponse> placeRequest(Request request, @Nullable DecisionListener listener, long timeoutMillis) {
+        applyDefaultNetworkId(request);
+        request = withRecordedFlightViews(request);
+        if (decisionCache != null) {
+            DecisionResponse cached = decisionCache.take(request);
+            if (cached != null) {
+                if (listener != null) {
+                    listener.success(cached);
+                }
+                return null;
             }
         }
+        if (timeoutMillis > 0) {
+            Call<DecisionResponse> call = newDecisionCall(request);
+            call.timeout().timeout(timeoutMillis, TimeUnit.MILLISECONDS);
+            return enqueue(call, Operations.REQUEST_PLACEMENT, listener);
+        }
+        if (placementAggregator != null) {
+            placementAggregator.add(request, listener);
+            return null;
+        }
+        return sendRequest(request, listener);
+    }
+
+    private Call<DecisionResponse> sendRequest(final Request request, @Nullable DecisionListener listener) {
+        if (requestCoalescer != null) {
+            // the call returned is this caller's own, so cancelling it does not fail other callers sharing the request
+            return requestCoalescer.join(getGson().toJson(request), listener, new RequestCoalescer.CallFactory() {
+                @Override
+                public Call<DecisionResponse> start(DecisionListener sharedListener) {
+                    return enqueue(newDecisionCall(request), Operations.REQUEST_PLACEMENT, sharedListener);
+                }
+            });
+        }
+        Call<DecisionResponse> call = newDecisionCall(request);
+        return enqueue(call, Operations.REQUEST_PLACEMENT, listener);
+    }
+
+    private Call<DecisionResponse> newDecisionCall(final Request request) {
         Call<DecisionResponse> call = getAdzerkService().request(request);
-        call.enqueue(new AdzerkCallback<DecisionResponse, DecisionResponse>("RequestPlacement", listener));
+        if (requestHedger == null) {
+            return call;
+        }
+        return requestHedger.hedge(call, new RequestHedger.CallFactory<DecisionResponse>() {
+            @Override
+            public Call<DecisionResponse> newHedge() {
+                return getHedgeService().request(request);
+            }
+        });
     }
 
     /**
@@ -230,12 +916,24 @@ public class AdzerkSdk {
      * @param request Request specifying one or more Placements
      */
     public DecisionResponse requestPlacementSynchronous(Request request) {
-        for (Placement p : request.getPlacements()) {
-            if (p.getNetworkId() == 0L) {
-                p.setNetworkId(this.defaultNetworkId);
-            }
+        return requestPlacementSynchronous(request, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Send a synchronous request to the Native Ads API, giving up once the deadline has passed.
+     *
+     * @param request Request specifying one or more Placements
+     * @param timeout deadline of the request, 0 for none
+     * @param unit unit of the deadline
+     * @return response, or null if the request failed or timed out
+     */
+    public DecisionResponse requestPlacementSynchronous(Request request, long timeout, TimeUnit unit) {
+        applyDefaultNetworkId(request);
+        Call<DecisionResponse> call = getAdzerkService().request(withRecordedFlightViews(request));
+        long timeoutMillis = toTimeoutMillis(timeout, unit);
+        if (timeoutMillis > 0) {
+            call.timeout().timeout(timeoutMillis, TimeUnit.MILLISECONDS);
         }
-        Call<DecisionResponse> call = getAdzerkService().request(request);
 
         try {
             return  call.execute().body();
@@ -244,6 +942,66 @@ public class AdzerkSdk {
         }
     }
 
+    /**
+     * Fetches decisions for placements the app expects to show soon and keeps them in the decision cache. A later
+     * {@link #requestPlacement} for the same placements is answered from the cache. Has no effect unless the
+     * cache is enabled with {@link Builder#decisionCache(int, long)}.
+     *
+     * @param request ad Request specifying the placements to prefetch
+     */
+    public void prefetchPlacements(Request request) {
+        if (decisionCache == null) {
+            return;
+        }
+        applyDefaultNetworkId(request);
+        final Request sent = withRecordedFlightViews(request);
+        Call<DecisionResponse> call = getAdzerkService().request(sent);
+        enqueue(call, Operations.PREFETCH_PLACEMENTS, new DecisionListener() {
+            @Override
+            public void success(DecisionResponse response) {
+                decisionCache.put(sent, response);
+            }
+
+            @Override
+            public void error(AdzerkError error) {
+                AdzerkLog.w(TAG, "Failed to prefetch placements: %s", error.getReason());
+            }
+        });
+    }
+
+    /**
+     * Drops all prefetched decisions, e.g. after the user or targeting has changed.
+     */
+    public void clearPrefetchedPlacements() {
+        if (decisionCache != null) {
+            decisionCache.clear();
+        }
+    }
+
+    private void applyDefaultNetworkId(Request request) {
+        for (Placement p : request.getPlacements()) {
+            if (p.getNetworkId() == 0L) {
+                p.setNetworkId(this.defaultNetworkId);
+            }
+        }
+    }
+
+    // Returns the request to send: a copy holding the locally recorded flight views, keeping any view times the app
+    // set for a flight. The Request of the app is left as is, so recorded views never turn into app-set ones.
+    private Request withRecordedFlightViews(Request request) {
+        if (frequencyCapStore == null) {
+            return request;
+        }
+        Map<Integer, List<Long>> flightViewTimes = frequencyCapStore.getFlightViewTimes(System.currentTimeMillis());
+        if (flightViewTimes.isEmpty()) {
+            return request;
+        }
+        if (request.getAllFlightViewTimes() != null) {
+            flightViewTimes.putAll(request.getAllFlightViewTimes());
+        }
+        return request.withFlightViewTimes(flightViewTimes);
+    }
+
     /**
      * Set custom properties for User, specifying properties via JSON string.
      * <p/>
@@ -255,7 +1013,7 @@ public class AdzerkSdk {
     public void setUserProperties(long networkId, String userKey, String json, @Nullable final UserListener listener) {
         RequestBody requestBody = RequestBody.create(MediaType.parse("application/json"), json);
         Call<Void> call = getAdzerkService().postUserProperties(networkId, userKey, requestBody);
-        call.enqueue(new AdzerkCallback<Void, User>("SetUserProperties", listener));
+        enqueue(call, Operations.SET_USER_PROPERTIES, listener);
     }
 
     /**
@@ -270,6 +1028,19 @@ public class AdzerkSdk {
         getAdzerkService().postUserProperties(networkId, userKey, requestBody).execute();
     }
 
+    /**
+     * Set custom properties for User, specifying properties via JSON string.
+     * <p/>
+     * @param networkId unique network id
+     * @param userKey   unique User key
+     * @param json      a JSON String representing the custom properties, ie. { "age": 27, "gender": "male }
+     * @return future that completes with null
+     */
+    public AdzerkFuture<User> setUserPropertiesAsync(long networkId, String userKey, String json) {
+        RequestBody requestBody = RequestBody.create(MediaType.parse("application/json"), json);
+        return enqueueAsync(getAdzerkService().postUserProperties(networkId, userKey, requestBody), Operations.SET_USER_PROPERTIES);
+    }
+
     /**
      * Set custom properties for User, specifying properties via a Map object
      * <p/>
@@ -280,7 +1051,7 @@ public class AdzerkSdk {
      */
     public void setUserProperties(long networkId, String userKey, Map<String, Object> properties, @Nullable final UserListener listener) {
         Call<Void> call = getAdzerkService().postUserProperties(networkId, userKey, properties);
-        call.enqueue(new AdzerkCallback<Void, User>("SetUserProperties", listener));
+        enqueue(call, Operations.SET_USER_PROPERTIES, listener);
     }
 
     /**
@@ -294,6 +1065,18 @@ public class AdzerkSdk {
         getAdzerkService().postUserProperties(networkId, userKey, properties).execute();
     }
 
+    /**
+     * Set custom properties for User, specifying properties via a Map object
+     * <p/>
+     * @param networkId     unique network id
+     * @param userKey       unique User key
+     * @param properties    map of key-value pairs
+     * @return future that completes with null
+     */
+    public AdzerkFuture<User> setUserPropertiesAsync(long networkId, String userKey, Map<String, Object> properties) {
+        return enqueueAsync(getAdzerkService().postUserProperties(networkId, userKey, properties), Operations.SET_USER_PROPERTIES);
+    }
+
     /**
      * Returns information about the User specified by userKey.
      * <p/>
@@ -303,7 +1086,7 @@ public class AdzerkSdk {
      */
     public void readUser(long networkId, String userKey, @Nullable final UserListener listener) {
         Call<User> call =  getAdzerkService().readUser(networkId, userKey);
-        call.enqueue(new AdzerkCallback<User, User>("SetUserProperties", listener));
+        enqueue(call, Operations.READ_USER, listener);
     }
 
     /**
@@ -318,6 +1101,17 @@ public class AdzerkSdk {
         return call.execute().body();
     }
 
+    /**
+     * Returns information about the User specified by userKey.
+     * <p/>
+     * @param networkId     unique network id
+     * @param userKey       unique User key
+     * @return future user object
+     */
+    public AdzerkFuture<User> readUserAsync(long networkId, String userKey) {
+        return enqueueAsync(getAdzerkService().readUser(networkId, userKey), Operations.READ_USER);
+    }
+
     /**
      * Sets an interest for a User. The User object contains a list of user interest keywords.
      * <p/>
@@ -328,7 +1122,7 @@ public class AdzerkSdk {
      */
     public void setUserInterest(long networkId, String userKey, String interest, @Nullable final UserListener listener) {
         Call<Void> call = getAdzerkService().setUserInterest(networkId, userKey, interest);
-        call.enqueue(new AdzerkCallback<Void, User>("SetUserInterest", listener));
+        enqueue(call, Operations.SET_USER_INTEREST, listener);
     }
 
     /**
@@ -342,6 +1136,18 @@ public class AdzerkSdk {
         getAdzerkService().setUserInterest(networkId, userKey, interest).execute();
     }
 
+    /**
+     * Sets an interest for a User. The User object contains a list of user interest keywords.
+     * <p/>
+     * @param networkId     unique network id
+     * @param userKey       unique User key
+     * @param interest      name of interest
+     * @return future that completes with null
+     */
+    public AdzerkFuture<User> setUserInterestAsync(long networkId, String userKey, String interest) {
+        return enqueueAsync(getAdzerkService().setUserInterest(networkId, userKey, interest), Operations.SET_USER_INTEREST);
+    }
+
     /**
      * Sets a flag to allow User to opt-out of tracking.
      * <p/>
@@ -351,7 +1157,7 @@ public class AdzerkSdk {
      */
     public void setUserOptout(long networkId, String userKey, @Nullable final UserListener listener) {
         Call<Void> call = getAdzerkService().setUserOptout(networkId, userKey);
-        call.enqueue(new AdzerkCallback<Void, User>("SetUserOptout", listener));
+        enqueue(call, Operations.SET_USER_OPTOUT, listener);
     }
 
     /**
@@ -364,6 +1170,17 @@ public class AdzerkSdk {
         getAdzerkService().setUserOptout(networkId, userKey).execute();
     }
 
+    /**
+     * Sets a flag to allow User to opt-out of tracking.
+     * <p/>
+     * @param networkId     unique network id
+     * @param userKey       unique User key
+     * @return future that completes with null
+     */
+    public AdzerkFuture<User> setUserOptoutAsync(long networkId, String userKey) {
+        return enqueueAsync(getAdzerkService().setUserOptout(networkId, userKey), Operations.SET_USER_OPTOUT);
+    }
+
     /**
      * Sets ad retargeting for brand and segment.
      * <p/>
@@ -375,7 +1192,7 @@ public class AdzerkSdk {
      */
     public void setUserRetargeting(long networkId, long brandId, String segment, String userKey, @Nullable final UserListener listener) {
         Call<Void> call = getAdzerkService().setUserRetargeting(networkId, brandId, segment, userKey);
-        call.enqueue(new AdzerkCallback<Void, User>("SetUserRetargeting", listener));
+        enqueue(call, Operations.SET_USER_RETARGETING, listener);
     }
 
     /**
@@ -390,6 +1207,20 @@ public class AdzerkSdk {
         getAdzerkService().setUserRetargeting(networkId, brandId, segment, userKey).execute();
     }
 
+    /**
+     * Sets ad retargeting for brand and segment.
+     * <p/>
+     * @param networkId     unique network id
+     * @param brandId       unique brand id
+     * @param segment       segment identifier
+     * @param userKey       unique User key
+     * @return future that completes with null
+     */
+    public AdzerkFuture<User> setUserRetargetingAsync(long networkId, long brandId, String segment, String userKey) {
+        return enqueueAsync(getAdzerkService().setUserRetargeting(networkId, brandId, segment, userKey),
+                Operations.SET_USER_RETARGETING);
+    }
+
     /**
      * Fire a pixel url
      *
@@ -440,24 +1271,100 @@ public class AdzerkSdk {
      * @param listener                callback listener
      */
     public void firePixel(String url, Float revenue, RevenueModifierType type, Float grossMerchandiseValue, @Nullable final FirePixelListener listener) {
+        enqueuePixel(url, revenue, type, grossMerchandiseValue, listener);
+    }
+
+    /**
+     * Fire a pixel url, returning a future for the response.
+     *
+     * @param url   click url
+     * @return future pixel response
+     */
+    public AdzerkFuture<FirePixelResponse> firePixelAsync(String url) {
+        return firePixelAsync(url, null, null, null);
+    }
+
+    /**
+     * Fire a pixel url, modifying the click revenue, returning a future for the response. Cancelling the future
+     * cancels the http call.
+     *
+     * @param url                     click url
+     * @param revenue                 amount of revenue
+     * @param type                    how specified revenue will be modified
+     * @param grossMerchandiseValue   how much the purchased item cost
+     * @return future pixel response
+     */
+    public AdzerkFuture<FirePixelResponse> firePixelAsync(String url, Float revenue, RevenueModifierType type, Float grossMerchandiseValue) {
+        final AdzerkFuture<FirePixelResponse> future = new AdzerkFuture<>();
+        future.setCall(enqueuePixel(url, revenue, type, grossMerchandiseValue, new FirePixelListener() {
+            @Override
+            public void success(FirePixelResponse response) {
+                future.complete(response);
+            }
+
+            @Override
+            public void error(AdzerkError error) {
+                future.fail(error);
+            }
+        }));
+        return future;
+    }
+
+    private Call<Void> enqueuePixel(String url, Float revenue, RevenueModifierType type, Float grossMerchandiseValue, @Nullable final FirePixelListener listener) {
         Float revenueOverride = type == RevenueModifierType.OVERRIDE ? revenue : null;
         Float additionalRevenue = type == RevenueModifierType.ADDITIONAL ? revenue : null;
         Call<Void> call = getAdzerkService().firePixel(url, revenueOverride, additionalRevenue, grossMerchandiseValue);
+        final PixelDispatcher.TrackedPixel trackedPixel = trackPixel(call);
+        if (metricsRecorder != null) {
+            metricsRecorder.expectDispatch(call.request(), Operations.FIRE_PIXEL);
+        }
 
-        call.enqueue(new Callback<Void>() {
+        Callback<Void> callback = new Callback<Void>() {
             @Override
-            public void onResponse(Call<Void> call, Response<Void> response) {
+            public void onResponse(final Call<Void> call, Response<Void> response) {
+                if (trackedPixel != null) {
+                    getPixelDispatcher().completed(trackedPixel, response.code());
+                }
                 String location = response.headers().names().contains("location") ? response.headers().get("location") : null;
-                listener.success(new FirePixelResponse(response.code(), location));
+                final FirePixelResponse pixelResponse = new FirePixelResponse(response.code(), location);
+                deliver(call, new Runnable() {
+                    @Override
+                    public void run() {
+                        if (listener != null) {
+                            listener.success(pixelResponse);
+                        }
+                    }
+                });
             }
 
             @Override
-            public void onFailure(Call<Void> call, Throwable t) {
-                if (listener != null) {
-                    listener.error(new AdzerkError(t));
+            public void onFailure(final Call<Void> call, Throwable t) {
+                if (trackedPixel != null) {
+                    if (call.isCanceled()) {
+                        // the app aborted the pixel, so it must not be replayed
+                        getPixelDispatcher().cancelled(trackedPixel);
+                    } else {
+                        getPixelDispatcher().failed(trackedPixel);
+                    }
                 }
+                final AdzerkError error = new AdzerkError(t);
+                deliver(call, new Runnable() {
+                    @Override
+                    public void run() {
+                        if (listener != null) {
+                            listener.error(error);
+                        }
+                    }
+                });
             }
-        });
+        };
+
+        if (pixelBatcher != null) {
+            pixelBatcher.add(call, callback);
+        } else {
+            call.enqueue(callback);
+        }
+        return call;
     }
 
     /**
@@ -478,27 +1385,58 @@ public class AdzerkSdk {
             String location = resp.headers().names().contains("location") ? resp.headers().get("location") : null;
             return new FirePixelResponse(resp.code(), location);
         } catch (IOException e) {
-            Log.e(TAG, "Failed to fire pixel on url: " + url, e);
+            AdzerkLog.e(TAG, "Failed to fire pixel on url: %s", url, e);
             return null;
         }
     }
 
     /**
-     * Converts the given String to an impression URL.
+     * Converts the given String to an impression URL and fires it in the background.
      *
      * @param urlString
-     * @return - false if it is malformed
+     * @return - false if it is malformed or the pixel queue is full
      */
     public boolean impression(final String urlString) {
         try {
-            impression(new URL(urlString));
-            return true;
+            return impression(new URL(urlString));
         } catch (MalformedURLException e) {
-            Log.e(TAG, "Failed to impress on url: " + urlString, e);
+            AdzerkLog.e(TAG, "Failed to impress on url: %s", urlString, e);
             return false;
         }
     }
 
+    /**
+     * Fires the impression of a decision in the background. When the frequency cap store is enabled and the pixel
+     * is accepted, the view of the decision's flight is recorded for later requests; see
+     * {@link Builder#frequencyCapping(int, long)}.
+     *
+     * @param decision decision that was shown
+     * @return false if the decision has no valid impression url or the pixel queue is full
+     */
+    public boolean impression(Decision decision) {
+        if (decision.getImpressionUrl() == null) {
+            AdzerkLog.w(TAG, "Decision for ad %d has no impression url", decision.getAdId());
+            return false;
+        }
+        long viewTimeMillis = System.currentTimeMillis();
+        if (!impression(decision.getImpressionUrl())) {
+            return false;
+        }
+        if (frequencyCapStore != null) {
+            frequencyCapStore.recordView(decision.getFlightId(), viewTimeMillis);
+        }
+        return true;
+    }
+
+    /**
+     * Forgets the flight views recorded by the frequency cap store, e.g. when the user logs out.
+     */
+    public void clearFrequencyCaps() {
+        if (frequencyCapStore != null) {
+            frequencyCapStore.clear();
+        }
+    }
+
     /**
      * Returns a request body for json string
      * @param jsonString
@@ -508,55 +1446,242 @@ public class AdzerkSdk {
         return RequestBody.create(MediaType.parse("application/json"), jsonString);
     }
 
-    protected void impression(final URL url) {
-        new Thread(new Runnable() {
+    protected boolean impression(final URL url) {
+        HttpUrl httpUrl = HttpUrl.get(url);
+        if (httpUrl == null) {
+            AdzerkLog.e(TAG, "Failed to impress on unsupported url: %s", url);
+            return false;
+        }
+        return getPixelDispatcher().dispatch(httpUrl);
+    }
+
+    /**
+     * Immediately sends any batched pixels and retries any journaled pixels that have not been delivered yet.
+     * See {@link Builder#pixelBatching(long, int)} and {@link Builder#pixelJournal(File)}.
+     * <p>
+     * Call this when the app observes that network connectivity has been restored, or before it goes to the
+     * background.
+     */
+    public void flushPendingPixels() {
+        if (pixelBatcher != null) {
+            pixelBatcher.flush();
+        }
+        if (pixelJournal != null) {
+            getPixelDispatcher().replay();
+        }
+    }
+
+    // Enqueues a call whose result is delivered to an SDK listener
+    private <T, R> Call<T> enqueue(Call<T> call, String operation, @Nullable AdzerkCallbackListener<R> listener) {
+        AdzerkCallback<T, R> callback = new AdzerkCallback<>(operation, listener);
+        callback.callbackExecutor = callbackExecutor;
+        if (metricsRecorder != null) {
+            metricsRecorder.expectDispatch(call.request(), operation);
+            callback.metricsRecorder = metricsRecorder;
+        }
+        call.enqueue(callback);
+        return call;
+    }
+
+    // Enqueues a call whose result completes the returned future
+    private <T, R> AdzerkFuture<R> enqueueAsync(Call<T> call, String operation) {
+        final AdzerkFuture<R> future = new AdzerkFuture<>();
+        future.setCall(enqueue(call, operation, new AdzerkCallbackListener<R>() {
+            @Override
+            public void success(R response) {
+                future.complete(response);
+            }
+
+            @Override
+            public void error(AdzerkError error) {
+                future.fail(error);
+            }
+        }));
+        return future;
+    }
+
+    private void deliver(Call<?> call, Runnable delivery) {
+        deliver(callbackExecutor, metricsRecorder, call, delivery);
+    }
+
+    // Calls a listener on the callback executor, or directly if there is none, and reports the time spent in it
+    private static void deliver(@Nullable Executor callbackExecutor, @Nullable final MetricsRecorder metricsRecorder,
+                                final Call<?> call, final Runnable delivery) {
+        Runnable timedDelivery = new Runnable() {
             @Override
             public void run() {
+                long start = System.nanoTime();
                 try {
-                    url.openConnection().getContent();
-                } catch(IOException e) {
-                    Log.e(TAG, "Failed to impress ", e);
+                    delivery.run();
+                } finally {
+                    if (metricsRecorder != null) {
+                        metricsRecorder.dispatched(call.request(), System.nanoTime() - start);
+                    }
                 }
             }
-        }).start();
+        };
+        if (callbackExecutor != null) {
+            callbackExecutor.execute(timedDelivery);
+        } else {
+            timedDelivery.run();
+        }
     }
 
-    // Create service for the Adzerk REST endpoint
-    private AdzerkService getAdzerkService() {
-        if (service == null ) {
-            Gson gson = new GsonBuilder()
-                  .registerTypeAdapterFactory(new FlattenTypeAdapterFactory())
-                  .registerTypeAdapter(ContentData.class, new ContentDataDeserializer())
-                  .registerTypeAdapter(UserProperties.class, new UserPropertiesDeserializer())
-                  .setLenient()
-                  .create();
-
-            Retrofit.Builder builder = new Retrofit.Builder()
-                  .baseUrl(baseUrl)
-                  .addConverterFactory(GsonConverterFactory.create(gson));
-
-            // test client
-            if (client != null) {
-                builder.client(client);
-            } else {
-                HttpLoggingInterceptor loggingInterceptor = new HttpLoggingInterceptor();
-                loggingInterceptor.setLevel(HttpLoggingInterceptor.Level.NONE);
-                //loggingInterceptor.setLevel(HttpLoggingInterceptor.Level.BODY);
+    // Journal a pixel fired via Retrofit, including its revenue and gmv query parameters
+    @Nullable
+    private PixelDispatcher.TrackedPixel trackPixel(Call<Void> call) {
+        if (pixelJournal == null) {
+            return null;
+        }
+        okhttp3.Request request = call.request();
+        return request != null ? getPixelDispatcher().track(request.url()) : null;
+    }
 
-                OkHttpClient.Builder httpClient = new OkHttpClient.Builder()
-                        .followRedirects(false)
-                        .addInterceptor(new SdkVersionRequestInterceptor())
-                        .addInterceptor((loggingInterceptor));
+    // Bounded worker pool for impression pixels
+    private synchronized PixelDispatcher getPixelDispatcher() {
+        if (pixelDispatcher == null) {
+            pixelDispatcher = new PixelDispatcher(getCallFactory(), pixelConcurrency, pixelQueueCapacity,
+                    pixelJournal, pixelJournal != null ? getScheduler() : null);
+        }
+        return pixelDispatcher;
+    }
+
+    // Single background thread for delayed SDK work, such as pixel batch flushes and replays
+    private synchronized ScheduledExecutorService getScheduler() {
+        if (scheduler == null) {
+            scheduler = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("adzerk-scheduler-"));
+        }
+        return scheduler;
+    }
 
-                builder.client(httpClient.build());
+    // Shared http client for the Adzerk REST endpoint and tracking pixels
+    private synchronized OkHttpClient getHttpClient() {
+        if (client == null) {
+            HttpLoggingInterceptor loggingInterceptor = new HttpLoggingInterceptor();
+            loggingInterceptor.setLevel(HttpLoggingInterceptor.Level.NONE);
+            //loggingInterceptor.setLevel(HttpLoggingInterceptor.Level.BODY);
+
+            OkHttpClient.Builder builder = sharedClient != null ? sharedClient.newBuilder() : new OkHttpClient.Builder();
+            if (maxRequests > 0 || maxRequestsPerHost > 0) {
+                Dispatcher dispatcher = sharedClient != null
+                        ? new Dispatcher(sharedClient.dispatcher().executorService())
+                        : new Dispatcher();
+                if (maxRequests > 0) {
+                    dispatcher.setMaxRequests(maxRequests);
+                }
+                if (maxRequestsPerHost > 0) {
+                    dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+                }
+                builder.dispatcher(dispatcher);
+            }
+            if (connectionPool != null) {
+                builder.connectionPool(connectionPool);
+            }
+            if (metricsRecorder != null) {
+                builder.eventListenerFactory(metricsRecorder.eventListenerFactory());
             }
 
-            service = builder.build().create(AdzerkService.class);
+            builder.followRedirects(false)
+                    .addInterceptor(new SdkVersionRequestInterceptor());
+            if (gzipInterceptor != null) {
+                builder.addInterceptor(gzipInterceptor);
+            }
+            client = builder
+                    .addInterceptor((loggingInterceptor))
+                    .build();
+        }
+        return client;
+    }
+
+    // Http client, applying the per operation timeouts if any were set
+    private synchronized okhttp3.Call.Factory getCallFactory() {
+        if (callFactory == null) {
+            callFactory = withTimeouts(getHttpClient());
+        }
+        return callFactory;
+    }
+
+    private okhttp3.Call.Factory withTimeouts(OkHttpClient client) {
+        if (decisionTimeoutMillis > 0 || userDbTimeoutMillis > 0 || pixelTimeoutMillis > 0) {
+            return new CallTimeouts(client, decisionTimeoutMillis, userDbTimeoutMillis, pixelTimeoutMillis);
+        }
+        return client;
+    }
+
+    private static long toTimeoutMillis(long timeout, TimeUnit unit) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("Timeout must not be negative");
+        }
+        if (unit == null) {
+            throw new IllegalArgumentException("Timeout unit must not be null");
+        }
+        return unit.toMillis(timeout);
+    }
+
+    // Gson configured for the Adzerk REST endpoint
+    private synchronized Gson getGson() {
+        if (gson == null) {
+            gson = GsonFactory.create();
+        }
+        return gson;
+    }
+
+    // Create service for the Adzerk REST endpoint
+    private AdzerkService getAdzerkService() {
+        if (service == null ) {
+            service = createAdzerkService(getCallFactory());
         }
 
         return service;
     }
 
+    // Service for hedged decision requests, on its own connection pool so that a duplicate never waits behind a
+    // slow connection of the first request
+    private synchronized AdzerkService getHedgeService() {
+        if (hedgeService == null) {
+            OkHttpClient hedgeClient = getHttpClient().newBuilder()
+                    .connectionPool(new ConnectionPool())
+                    .build();
+            hedgeService = createAdzerkService(withTimeouts(hedgeClient));
+        }
+        return hedgeService;
+    }
+
+    private AdzerkService createAdzerkService(okhttp3.Call.Factory callFactory) {
+        Converter.Factory converterFactory = GsonConverterFactory.create(getGson());
+        if (metricsRecorder != null) {
+            converterFactory = metricsRecorder.converterFactory(converterFactory);
+        }
+        Retrofit.Builder builder = new Retrofit.Builder()
+              .baseUrl(baseUrl);
+        if (requestBodyEncoder != null) {
+            // writes Request bodies, everything else falls through to gson
+            builder.addConverterFactory(requestBodyEncoder);
+        }
+        Retrofit retrofit = builder
+              .addConverterFactory(converterFactory)
+              .callFactory(callFactory)
+              .build();
+
+        // Retrofit callbacks run on the http client thread, so that SDK bookkeeping such as the pixel journal
+        // stays off the main thread, and the SDK hands listeners to the callback executor itself. Unless one
+        // was set, that is the platform default of Retrofit: the main thread on Android.
+        if (callbackExecutor == null) {
+            callbackExecutor = retrofit.callbackExecutor();
+        }
+        return retrofit.newBuilder()
+              .callbackExecutor(DIRECT_EXECUTOR)
+              .build()
+              .create(AdzerkService.class);
+    }
+
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
     private static class SdkVersionRequestInterceptor implements Interceptor {
 
         static String SDK_VERSION_HEADER = "X-Adzerk-Sdk-Version";
@@ -573,30 +1698,6 @@ public class AdzerkSdk {
         }
     };
 
-    // Capture the default deserialization and JsonObject for the 'data.customData' element
-    private static class ContentDataDeserializer implements JsonDeserializer<ContentData> {
-
-        @Override
-        public ContentData deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
-            JsonObject dataObject = json.getAsJsonObject();
-            Map<String, Object> map = context.deserialize(dataObject, Map.class);
-            JsonObject customDataObject = dataObject.getAsJsonObject("customData");
-
-            return new ContentData(map, customDataObject);
-        }
-    }
-
-    // Capture the default deserialization and JsonObject for the 'custom' element
-    private static class UserPropertiesDeserializer implements JsonDeserializer<UserProperties> {
-
-        @Override
-        public UserProperties deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
-            JsonObject dataObject = json.getAsJsonObject();
-            Map<String, Object> map = context.deserialize(dataObject, Map.class);
-            return new UserProperties(map, dataObject);
-        }
-    }
-
     private static String parseErrorBody(ResponseBody responseBody) {
         try {
             return responseBody.string();
@@ -609,9 +1710,10 @@ public class AdzerkSdk {
 
         AdzerkCallbackListener<R> listener;
         String operation;
+        MetricsRecorder metricsRecorder;
+        Executor callbackExecutor;
 
         public AdzerkCallback(String operation, AdzerkCallbackListener<R> listener) {
-            System.out.println("adzerk callback created");
             this.operation = operation;
             this.listener = listener;
         }
@@ -627,31 +1729,42 @@ public class AdzerkSdk {
          */
         @Override
         public void onResponse(Call<T> call, Response<T> response) {
-            System.out.println("adzerk callback onResponse");
+            if (AdzerkLog.isLoggable(Log.DEBUG)) {
+                AdzerkLog.d(TAG, "%s returned status %d", operation, response.code());
+            }
 
             if (listener == null) {
+                dispatched(call, System.nanoTime());
                 return;
             }
 
             if (response.isSuccessful()) {
                 T content = response.body();
-                if (content == null || content instanceof Void) {
-                    System.out.println("adzerk callback response is Void");
-                    listener.success(null);
-                } else {
-                    System.out.println("adzerk callback response is " + content.getClass());
-                    listener.success((R)content);
-                }
+                final R result = content == null || content instanceof Void ? null : (R) content;
+                deliver(call, new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.success(result);
+                    }
+                });
             } else {
                 int statusCode = response.code();
                 String statusMessage = response.message();
                 ResponseBody errorBody = response.errorBody();
 
+                // read the error body here rather than on the callback executor
+                final AdzerkError error;
                 if (errorBody!=null) {
-                    listener.error(new AdzerkError(statusCode, statusMessage, new Exception(operation + " failed: " + parseErrorBody(errorBody))));
+                    error = new AdzerkError(statusCode, statusMessage, new Exception(operation + " failed: " + parseErrorBody(errorBody)));
                 } else {
-                    listener.error(new AdzerkError(statusCode, statusMessage, new Exception(operation + " failed: ")));
+                    error = new AdzerkError(statusCode, statusMessage, new Exception(operation + " failed: "));
                 }
+                deliver(call, new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.error(error);
+                    }
+                });
             }
         }
 
@@ -664,8 +1777,31 @@ public class AdzerkSdk {
          */
         @Override
         public void onFailure(Call<T> call, Throwable t) {
-            if (listener != null) {
-                listener.error(new AdzerkError(t));
+            if (AdzerkLog.isLoggable(Log.DEBUG)) {
+                AdzerkLog.d(TAG, "%s failed: %s", operation, t);
+            }
+
+            if (listener == null) {
+                dispatched(call, System.nanoTime());
+                return;
+            }
+
+            final AdzerkError error = new AdzerkError(t);
+            deliver(call, new Runnable() {
+                @Override
+                public void run() {
+                    listener.error(error);
+                }
+            });
+        }
+
+        private void deliver(Call<T> call, Runnable delivery) {
+            AdzerkSdk.deliver(callbackExecutor, metricsRecorder, call, delivery);
+        }
+
+        private void dispatched(Call<T> call, long startNanos) {
+            if (metricsRecorder != null) {
+                metricsRecorder.dispatched(call.request(), System.nanoTime() - startNanos);
             }
         }
     }
@@ -0,0 +1,140 @@
+package com.adzerk.android.sdk;
+
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timings and payload sizes of a single SDK call.
+ * <p>
+ * Network phases are measured from OkHttp call events. A phase that did not happen, such as DNS and connect when a
+ * pooled connection was reused, has a duration of 0. The parse time covers reading and converting the response
+ * body, which are streamed together. The dispatch time is spent in the listener passed to the SDK.
+ *
+ * @see AdzerkSdk.Builder#metricsListener(AdzerkSdk.MetricsListener)
+ */
+public class CallMetrics {
+
+    String operation;
+    long dnsNanos;
+    long connectNanos;
+    long tlsNanos;
+    long ttfbNanos;
+    long bodyReadNanos;
+    long parseNanos;
+    long dispatchNanos;
+    long totalNanos;
+    long requestBytes;
+    long uncompressedRequestBytes;
+    long responseBytes;
+    int statusCode;
+    @Nullable Throwable failure;
+
+    CallMetrics(String operation) {
+        this.operation = operation;
+    }
+
+    /**
+     * Name of the SDK operation, such as "RequestPlacement", "SetUserProperties" or "FirePixel"
+     * @return operation name
+     */
+    public String getOperation() {
+        return operation;
+    }
+
+    public long getDnsTime(TimeUnit unit) {
+        return unit.convert(dnsNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Time to establish the connection, including the TLS handshake
+     */
+    public long getConnectTime(TimeUnit unit) {
+        return unit.convert(connectNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public long getTlsTime(TimeUnit unit) {
+        return unit.convert(tlsNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Time from sending the request headers until the response headers started to arrive
+     */
+    public long getTimeToFirstByte(TimeUnit unit) {
+        return unit.convert(ttfbNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public long getBodyReadTime(TimeUnit unit) {
+        return unit.convert(bodyReadNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public long getParseTime(TimeUnit unit) {
+        return unit.convert(parseNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public long getDispatchTime(TimeUnit unit) {
+        return unit.convert(dispatchNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Time from the start of the call until its response was read, excluding listener dispatch
+     */
+    public long getTotalTime(TimeUnit unit) {
+        return unit.convert(totalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Size of the request body sent
+     * @return bytes
+     */
+    public long getRequestBytes() {
+        return requestBytes;
+    }
+
+    /**
+     * Size of the request body before gzip compression, the same as {@link #getRequestBytes()} when the body was
+     * sent uncompressed
+     * @return bytes
+     * @see AdzerkSdk.Builder#gzipRequests(int, int)
+     */
+    public long getUncompressedRequestBytes() {
+        return uncompressedRequestBytes > 0 ? uncompressedRequestBytes : requestBytes;
+    }
+
+    /**
+     * Size of the response body received, as sent over the wire
+     * @return bytes
+     */
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+
+    /**
+     * HTTP status code, or 0 if no response was received
+     * @return status code
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Failure that ended the call, if any
+     * @return failure or null
+     */
+    @Nullable
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    @Override
+    public String toString() {
+        return "CallMetrics{" +
+                "operation='" + operation + '\'' +
+                ", statusCode=" + statusCode +
+                ", totalMs=" + getTotalTime(TimeUnit.MILLISECONDS) +
+                ", requestBytes=" + requestBytes +
+                ", uncompressedRequestBytes=" + getUncompressedRequestBytes() +
+                ", responseBytes=" + responseBytes +
+                '}';
+    }
+}
@@ -0,0 +1,58 @@
+package com.adzerk.android.sdk;
+
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Request;
+
+/**
+ * Creates calls with a timeout for the whole call, from connecting until the response body is read, chosen by the
+ * kind of operation: decisions, UserDB calls or pixels.
+ * <p>
+ * The timeout of a single call can still be changed through its {@code timeout()} before it is executed.
+ */
+class CallTimeouts implements Call.Factory {
+
+    private final Call.Factory delegate;
+    private final long decisionMillis;
+    private final long userDbMillis;
+    private final long pixelMillis;
+
+    /**
+     * @param delegate       creates the calls, usually the http client
+     * @param decisionMillis timeout of decision requests, 0 for none
+     * @param userDbMillis   timeout of UserDB calls, 0 for none
+     * @param pixelMillis    timeout of pixels and impressions, 0 for none
+     */
+    CallTimeouts(Call.Factory delegate, long decisionMillis, long userDbMillis, long pixelMillis) {
+        this.delegate = delegate;
+        this.decisionMillis = decisionMillis;
+        this.userDbMillis = userDbMillis;
+        this.pixelMillis = pixelMillis;
+    }
+
+    @Override
+    public Call newCall(Request request) {
+        Call call = delegate.newCall(request);
+        long timeoutMillis = timeoutMillis(Operations.of(request));
+        if (timeoutMillis > 0) {
+            call.timeout().timeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        return call;
+    }
+
+    long timeoutMillis(String operation) {
+        switch (operation) {
+            case Operations.REQUEST_PLACEMENT:
+                return decisionMillis;
+            case Operations.FIRE_PIXEL:
+            case Operations.IMPRESSION:
+                return pixelMillis;
+            case Operations.WARM_UP:
+            case Operations.UNKNOWN:
+                return 0;
+            default:
+                return userDbMillis;
+        }
+    }
+}
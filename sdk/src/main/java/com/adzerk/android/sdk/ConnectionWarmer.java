@@ -0,0 +1,81 @@
+package com.adzerk.android.sdk;
+
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Opens a pooled connection to the decision host ahead of the first request.
+ * <p>
+ * The hostname is resolved with the client's DNS, then a HEAD request is sent to the host so the TCP connection
+ * and TLS session (and HTTP/2 session, when negotiated) are set up and returned to the client's connection pool.
+ * The first decision request then reuses that connection instead of paying for the handshakes.
+ */
+class ConnectionWarmer implements Runnable {
+    static final String TAG = ConnectionWarmer.class.getSimpleName();
+
+    private final OkHttpClient client;
+    private final HttpUrl url;
+    @Nullable private final AdzerkSdk.WarmUpListener listener;
+    @Nullable private final Executor callbackExecutor;
+
+    ConnectionWarmer(OkHttpClient client, HttpUrl url, @Nullable AdzerkSdk.WarmUpListener listener,
+                     @Nullable Executor callbackExecutor) {
+        this.client = client;
+        this.url = url;
+        this.listener = listener;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    @Override
+    public void run() {
+        long start = System.nanoTime();
+        try {
+            client.dns().lookup(url.host());
+            long resolved = System.nanoTime();
+
+            Request request = new Request.Builder().url(url).head().tag(String.class, Operations.WARM_UP).build();
+            Response response = client.newCall(request).execute();
+            long connected = System.nanoTime();
+            // only the connection is wanted; closing the response returns it to the pool
+            response.close();
+
+            final WarmUpTiming timing = new WarmUpTiming(
+                    TimeUnit.NANOSECONDS.toMillis(resolved - start),
+                    TimeUnit.NANOSECONDS.toMillis(connected - resolved));
+            deliver(new Runnable() {
+                @Override
+                public void run() {
+                    listener.success(timing);
+                }
+            });
+        } catch (IOException e) {
+            AdzerkLog.w(TAG, "Failed to warm up connection to %s", url.host(), e);
+            final AdzerkSdk.AdzerkError error = new AdzerkSdk.AdzerkError(e);
+            deliver(new Runnable() {
+                @Override
+                public void run() {
+                    listener.error(error);
+                }
+            });
+        }
+    }
+
+    private void deliver(Runnable delivery) {
+        if (listener == null) {
+            return;
+        }
+        if (callbackExecutor != null) {
+            callbackExecutor.execute(delivery);
+        } else {
+            delivery.run();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.adzerk.android.sdk;
+
+import androidx.annotation.Nullable;
+
+import com.adzerk.android.sdk.rest.Decision;
+import com.adzerk.android.sdk.rest.DecisionResponse;
+import com.adzerk.android.sdk.rest.Placement;
+import com.adzerk.android.sdk.rest.Request;
+import com.adzerk.android.sdk.rest.User;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LRU cache of prefetched decisions.
+ * <p>
+ * Decisions are stored per placement, keyed by the serialized placement together with everything else its request
+ * sends to the server: user, keywords, url, consent, blocked creatives, flight view times, additional options and so
+ * on. A decision prefetched for one user or context is therefore never served to another. Entries expire after a
+ * fixed time to live so stale ads are never shown. An entry is removed when it is used, so a prefetched ad is
+ * delivered at most once and its impression cannot be counted twice.
+ */
+class DecisionCache {
+
+    static final int DEFAULT_MAX_ENTRIES = 32;
+    static final long DEFAULT_TTL_MILLIS = 5 * 60 * 1000L;
+
+    private final Gson gson;
+    private final long ttlNanos;
+    private final LinkedHashMap<String, CachedDecisions> entries;
+
+    /**
+     * @param gson       gson used to serialize requests
+     * @param maxEntries maximum number of cached placements, least recently used are evicted first
+     * @param ttlMillis  how long a prefetched decision may be shown
+     */
+    DecisionCache(Gson gson, final int maxEntries, long ttlMillis) {
+        this.gson = gson;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.entries = new LinkedHashMap<String, CachedDecisions>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedDecisions> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Stores the decisions of a response for each placement of the request. Placements without a decision are
+     * not cached.
+     *
+     * @param request  request that was sent
+     * @param response response to the request
+     */
+    synchronized void put(Request request, DecisionResponse response) {
+        if (response == null || response.getDecisions() == null) {
+            return;
+        }
+        long expiresAt = System.nanoTime() + ttlNanos;
+        String targeting = targeting(request);
+        for (Placement placement : request.getPlacements()) {
+            List<Decision> decisions = response.getDecisions(placement.getDivName());
+            if (decisions != null && !decisions.isEmpty()) {
+                entries.put(key(targeting, placement), new CachedDecisions(response.getUser(), decisions, expiresAt));
+            }
+        }
+    }
+
+    /**
+     * Removes and returns cached decisions for every placement of the request. Nothing is removed unless all
+     * placements have an unexpired entry.
+     *
+     * @param request ad request
+     * @return response built from cached decisions, or null on a miss
+     */
+    @Nullable
+    synchronized DecisionResponse take(Request request) {
+        long now = System.nanoTime();
+        List<String> keys = new ArrayList<>(request.getPlacements().size());
+        String targeting = targeting(request);
+        for (Placement placement : request.getPlacements()) {
+            String key = key(targeting, placement);
+            CachedDecisions entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (now - entry.expiresAt >= 0) {
+                entries.remove(key);
+                return null;
+            }
+            keys.add(key);
+        }
+
+        User user = null;
+        Map<String, List<Decision>> decisions = new HashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            CachedDecisions entry = entries.remove(keys.get(i));
+            user = entry.user;
+            decisions.put(request.getPlacements().get(i).getDivName(), entry.decisions);
+        }
+        return new DecisionResponse(user, decisions);
+    }
+
+    /**
+     * Drops all cached decisions.
+     */
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    // Everything the server sees of the request but its placements, so that a decision is only served to requests
+    // with the same targeting
+    private String targeting(Request request) {
+        JsonElement json = gson.toJsonTree(request);
+        if (json.isJsonObject()) {
+            json.getAsJsonObject().remove("placements");
+        }
+        return json.toString();
+    }
+
+    // Everything the server sees of a placement
+    private String key(String targeting, Placement placement) {
+        return targeting + gson.toJson(placement);
+    }
+
+    private static class CachedDecisions {
+        final User user;
+        final List<Decision> decisions;
+        final long expiresAt;
+
+        CachedDecisions(User user, List<Decision> decisions, long expiresAt) {
+            this.user = user;
+            this.decisions = decisions;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.adzerk.android.sdk;
+
+import android.util.SparseArray;
+
+import com.adzerk.android.sdk.rest.LongList;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the times the user viewed each flight, so that decision requests can carry {@code flightViewTimes} for
+ * frequency capping without a UserDB read.
+ * <p>
+ * Each flight has a ring buffer of primitive timestamps holding its most recent views, so a flight never keeps more
+ * than the configured number of views and recording a view does not allocate once its buffer exists. Views older than
+ * the maximum age are dropped when view times are read. The store lives in memory for the lifetime of the SDK.
+ */
+class FrequencyCapStore {
+
+    private final int maxViewsPerFlight;
+    private final long maxAgeMillis;
+    private final SparseArray<ViewTimes> flights = new SparseArray<>();
+
+    /**
+     * @param maxViewsPerFlight number of most recent views kept per flight
+     * @param maxAgeMillis      age after which a view no longer counts
+     */
+    FrequencyCapStore(int maxViewsPerFlight, long maxAgeMillis) {
+        this.maxViewsPerFlight = maxViewsPerFlight;
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    /**
+     * Records a view of the given flight.
+     *
+     * @param flightId   id of the flight
+     * @param timeMillis time of the view, milliseconds since the epoch
+     */
+    synchronized void recordView(int flightId, long timeMillis) {
+        ViewTimes times = flights.get(flightId);
+        if (times == null) {
+            times = new ViewTimes(maxViewsPerFlight);
+            flights.put(flightId, times);
+        }
+        times.add(timeMillis);
+    }
+
+    /**
+     * Returns the views that still count, as UNIX epoch timestamps in seconds by flight id, and forgets older views.
+     *
+     * @param nowMillis current time, milliseconds since the epoch
+     * @return flight view times, empty if no view counts
+     */
+    synchronized Map<Integer, List<Long>> getFlightViewTimes(long nowMillis) {
+        long oldestMillis = nowMillis - maxAgeMillis;
+        Map<Integer, List<Long>> flightViewTimes = new HashMap<>();
+        for (int i = flights.size() - 1; i >= 0; i--) {
+            ViewTimes times = flights.valueAt(i);
+            times.prune(oldestMillis);
+            if (times.count == 0) {
+                flights.removeAt(i);
+            } else {
+                flightViewTimes.put(flights.keyAt(i), times.toEpochSeconds());
+            }
+        }
+        return flightViewTimes;
+    }
+
+    /**
+     * Returns the number of flights with recorded views, including views that may have expired.
+     *
+     * @return flight count
+     */
+    synchronized int getFlightCount() {
+        return flights.size();
+    }
+
+    synchronized void clear() {
+        flights.clear();
+    }
+
+    // Ring buffer of view times in milliseconds, oldest first
+    private static class ViewTimes {
+        final long[] times;
+        int start;
+        int count;
+
+        ViewTimes(int capacity) {
+            this.times = new long[capacity];
+        }
+
+        void add(long timeMillis) {
+            if (count < times.length) {
+                times[(start + count) % times.length] = timeMillis;
+                count++;
+            } else {
+                // overwrite the oldest view
+                times[start] = timeMillis;
+                start = (start + 1) % times.length;
+            }
+        }
+
+        void prune(long oldestMillis) {
+            while (count > 0 && times[start] < oldestMillis) {
+                start = (start + 1) % times.length;
+                count--;
+            }
+        }
+
+        List<Long> toEpochSeconds() {
+            LongList seconds = new LongList(count);
+            for (int i = 0; i < count; i++) {
+                seconds.addLong(TimeUnit.MILLISECONDS.toSeconds(times[(start + i) % times.length]));
+            }
+            return seconds;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.adzerk.android.sdk;
+
+import android.util.Log;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.Buffer;
+
+/**
+ * Compresses the bodies of decision requests and UserDB custom property updates with gzip.
+ * <p>
+ * Only bodies of at least the threshold size are compressed, since gzip adds about 20 bytes and costs CPU time that
+ * small bodies do not pay back. A body is compressed in memory before it is sent, so that it has a content length,
+ * and is sent as is if compressing did not make it smaller. Requests that already have a Content-Encoding are left
+ * alone.
+ */
+class GzipRequestInterceptor implements Interceptor {
+    static final String TAG = GzipRequestInterceptor.class.getSimpleName();
+
+    static final String CONTENT_ENCODING_HEADER = "Content-Encoding";
+
+    private final int minBytes;
+    private final int level;
+    @Nullable private final MetricsRecorder metricsRecorder;
+
+    private int compressedCount;
+    private long uncompressedBytes;
+    private long compressedBytes;
+
+    /**
+     * @param minBytes        smallest body size that is compressed
+     * @param level           deflate compression level, from 1 (fastest) to 9 (smallest)
+     * @param metricsRecorder notified of the uncompressed size of each compressed body, or null
+     */
+    GzipRequestInterceptor(int minBytes, int level, @Nullable MetricsRecorder metricsRecorder) {
+        this.minBytes = minBytes;
+        this.level = level;
+        this.metricsRecorder = metricsRecorder;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request original = chain.request();
+        RequestBody body = original.body();
+        if (body == null || !isCompressible(original) || original.header(CONTENT_ENCODING_HEADER) != null) {
+            return chain.proceed(original);
+        }
+        long length = body.contentLength();
+        if (length >= 0 && length < minBytes) {
+            return chain.proceed(original);
+        }
+
+        Buffer uncompressed = new Buffer();
+        body.writeTo(uncompressed);
+        if (uncompressed.size() < minBytes) {
+            // the body has been read, so it is sent from the buffer
+            return chain.proceed(withBody(original, body, uncompressed));
+        }
+
+        Buffer compressed = new Buffer();
+        OutputStream gzip = new LeveledGzipOutputStream(compressed.outputStream(), level);
+        uncompressed.copyTo(gzip, 0, uncompressed.size());
+        gzip.close();
+        if (compressed.size() >= uncompressed.size()) {
+            return chain.proceed(withBody(original, body, uncompressed));
+        }
+
+        recordCompression(uncompressed.size(), compressed.size());
+        if (metricsRecorder != null) {
+            metricsRecorder.requestCompressed(chain.call().request(), uncompressed.size());
+        }
+        if (AdzerkLog.isLoggable(Log.DEBUG)) {
+            AdzerkLog.d(TAG, "Compressed request body from %d to %d bytes", uncompressed.size(), compressed.size());
+        }
+        return chain.proceed(withBody(original, body, compressed).newBuilder()
+                .header(CONTENT_ENCODING_HEADER, "gzip")
+                .build());
+    }
+
+    /**
+     * Returns the number of request bodies sent compressed.
+     *
+     * @return compressed body count
+     */
+    synchronized int getCompressedCount() {
+        return compressedCount;
+    }
+
+    /**
+     * Returns the number of bytes saved by compressing request bodies.
+     *
+     * @return uncompressed size minus compressed size of all compressed bodies
+     */
+    synchronized long getBytesSaved() {
+        return uncompressedBytes - compressedBytes;
+    }
+
+    private synchronized void recordCompression(long uncompressedSize, long compressedSize) {
+        compressedCount++;
+        uncompressedBytes += uncompressedSize;
+        compressedBytes += compressedSize;
+    }
+
+    private static Request withBody(Request request, RequestBody body, Buffer content) {
+        return request.newBuilder()
+                .method(request.method(), RequestBody.create(body.contentType(), content.readByteString()))
+                .build();
+    }
+
+    // POST /api/v2 and POST /udb/{networkId}/custom
+    static boolean isCompressible(Request request) {
+        if (!"POST".equals(request.method())) {
+            return false;
+        }
+        List<String> segments = request.url().pathSegments();
+        if (segments.size() == 2) {
+            return segments.get(0).equals("api") && segments.get(1).equals("v2");
+        }
+        return segments.size() == 3 && segments.get(0).equals("udb") && segments.get(2).equals("custom");
+    }
+
+    private static class LeveledGzipOutputStream extends GZIPOutputStream {
+
+        LeveledGzipOutputStream(OutputStream out, int level) throws IOException {
+            super(out);
+            def.setLevel(level);
+        }
+    }
+}
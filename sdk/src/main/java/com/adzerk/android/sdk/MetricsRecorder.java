@@ -0,0 +1,351 @@
+package com.adzerk.android.sdk;
+
+import androidx.annotation.Nullable;
+
+import com.adzerk.android.sdk.AdzerkSdk.MetricsListener;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+/**
+ * Collects {@link CallMetrics} for every call made with the SDK http client and reports them to a
+ * {@link MetricsListener}.
+ * <p>
+ * Network phases come from an OkHttp {@link EventListener}. Parsing is timed by wrapping the Retrofit converter:
+ * OkHttp reads the response headers and Retrofit converts the body on the same thread, so the call being parsed is
+ * handed to the converter through a thread local. Calls completed through an SDK listener also time the listener
+ * dispatch and are reported once it returns; all other calls are reported when OkHttp ends them.
+ * <p>
+ * A hedged request reports one record: the duplicate call is not reported unless it wins, in which case its metrics
+ * replace those of the first call.
+ */
+class MetricsRecorder {
+    static final String TAG = MetricsRecorder.class.getSimpleName();
+
+    private final MetricsListener listener;
+    private final Map<Request, Tracker> trackers = Collections.synchronizedMap(new WeakHashMap<Request, Tracker>());
+    private final ThreadLocal<Tracker> receiving = new ThreadLocal<>();
+
+    MetricsRecorder(MetricsListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Returns the factory of OkHttp event listeners that time each call.
+     *
+     * @return event listener factory
+     */
+    EventListener.Factory eventListenerFactory() {
+        return new EventListener.Factory() {
+            @Override
+            public EventListener create(Call call) {
+                Tracker tracker = new Tracker(Operations.of(call.request()));
+                trackers.put(call.request(), tracker);
+                return new TimingEventListener(tracker);
+            }
+        };
+    }
+
+    /**
+     * Wraps a converter factory so that response body conversion is timed.
+     *
+     * @param delegate converter factory that parses responses
+     * @return timing converter factory
+     */
+    Converter.Factory converterFactory(final Converter.Factory delegate) {
+        return new Converter.Factory() {
+            @Override
+            public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations,
+                                                                    Retrofit retrofit) {
+                Converter<ResponseBody, ?> converter = delegate.responseBodyConverter(type, annotations, retrofit);
+                return converter != null ? new TimingConverter<>(converter) : null;
+            }
+
+            @Override
+            public Converter<?, RequestBody> requestBodyConverter(Type type, Annotation[] parameterAnnotations,
+                                                                  Annotation[] methodAnnotations, Retrofit retrofit) {
+                return delegate.requestBodyConverter(type, parameterAnnotations, methodAnnotations, retrofit);
+            }
+        };
+    }
+
+    /**
+     * Marks a call whose result will be delivered to an SDK listener. Its metrics are reported after
+     * {@link #dispatched(Request, long)}.
+     *
+     * @param request   request of the call
+     * @param operation operation name that replaces the one of the service method
+     */
+    void expectDispatch(@Nullable Request request, String operation) {
+        Tracker tracker = request != null ? trackers.get(request) : null;
+        if (tracker != null) {
+            synchronized (tracker) {
+                tracker.metrics.operation = operation;
+                tracker.awaitingDispatch = true;
+            }
+        }
+    }
+
+    /**
+     * Records the size of a request body before it was compressed.
+     *
+     * @param request           request of the call
+     * @param uncompressedBytes size of the body before compression
+     */
+    void requestCompressed(@Nullable Request request, long uncompressedBytes) {
+        Tracker tracker = request != null ? trackers.get(request) : null;
+        if (tracker != null) {
+            synchronized (tracker) {
+                tracker.metrics.uncompressedRequestBytes = uncompressedBytes;
+            }
+        }
+    }
+
+    /**
+     * Marks the duplicate call of a hedged request, so that it is not reported on its own.
+     *
+     * @param hedge request of the duplicate call
+     */
+    void hedgeStarted(@Nullable Request hedge) {
+        Tracker tracker = hedge != null ? trackers.get(hedge) : null;
+        if (tracker != null) {
+            synchronized (tracker) {
+                tracker.suppressed = true;
+            }
+        }
+    }
+
+    /**
+     * Moves the metrics of a hedged request onto its winning duplicate call, which is then reported in place of the
+     * first call, under the first call's request and operation.
+     *
+     * @param primary request of the first call
+     * @param hedge   request of the duplicate call that answered first
+     */
+    void hedgeWon(@Nullable Request primary, @Nullable Request hedge) {
+        Tracker primaryTracker = primary != null ? trackers.get(primary) : null;
+        Tracker hedgeTracker = hedge != null ? trackers.get(hedge) : null;
+        if (primaryTracker == null || hedgeTracker == null) {
+            return;
+        }
+        String operation;
+        boolean awaitingDispatch;
+        synchronized (primaryTracker) {
+            primaryTracker.suppressed = true;
+            operation = primaryTracker.metrics.operation;
+            awaitingDispatch = primaryTracker.awaitingDispatch;
+        }
+        synchronized (hedgeTracker) {
+            hedgeTracker.metrics.operation = operation;
+            hedgeTracker.awaitingDispatch = awaitingDispatch;
+            hedgeTracker.suppressed = false;
+        }
+        // the listener dispatch is reported against the request of the first call
+        trackers.put(primary, hedgeTracker);
+        reportIfComplete(hedgeTracker);
+    }
+
+    /**
+     * Records the time spent in the SDK listener of a call.
+     *
+     * @param request       request of the call
+     * @param dispatchNanos time spent in the listener
+     */
+    void dispatched(@Nullable Request request, long dispatchNanos) {
+        Tracker tracker = request != null ? trackers.get(request) : null;
+        if (tracker == null) {
+            return;
+        }
+        synchronized (tracker) {
+            tracker.metrics.dispatchNanos = dispatchNanos;
+            tracker.awaitingDispatch = false;
+        }
+        reportIfComplete(tracker);
+    }
+
+    // Entries are dropped by the weak map once the call is no longer referenced
+    private void reportIfComplete(Tracker tracker) {
+        synchronized (tracker) {
+            if (!tracker.networkDone || tracker.parsing || tracker.awaitingDispatch || tracker.suppressed
+                    || tracker.reported) {
+                return;
+            }
+            tracker.reported = true;
+        }
+        try {
+            listener.onCallMetrics(tracker.metrics);
+        } catch (RuntimeException e) {
+            AdzerkLog.w(TAG, "Metrics listener failed", e);
+        }
+    }
+
+    // Metrics of one call, guarded by its own lock
+    private static class Tracker {
+        final CallMetrics metrics;
+        long callStart;
+        long dnsStart;
+        long connectStart;
+        long secureConnectStart;
+        long requestHeadersStart;
+        long responseBodyStart;
+        boolean networkDone;
+        boolean parsing;
+        boolean awaitingDispatch;
+        // a hedge that has not won, or a call that a hedge won over
+        boolean suppressed;
+        boolean reported;
+
+        Tracker(String operation) {
+            this.metrics = new CallMetrics(operation);
+        }
+    }
+
+    private class TimingEventListener extends EventListener {
+        private final Tracker tracker;
+
+        TimingEventListener(Tracker tracker) {
+            this.tracker = tracker;
+        }
+
+        @Override
+        public void callStart(Call call) {
+            tracker.callStart = System.nanoTime();
+        }
+
+        @Override
+        public void dnsStart(Call call, String domainName) {
+            tracker.dnsStart = System.nanoTime();
+        }
+
+        @Override
+        public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+            tracker.metrics.dnsNanos = System.nanoTime() - tracker.dnsStart;
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+            tracker.connectStart = System.nanoTime();
+        }
+
+        @Override
+        public void secureConnectStart(Call call) {
+            tracker.secureConnectStart = System.nanoTime();
+        }
+
+        @Override
+        public void secureConnectEnd(Call call, @Nullable Handshake handshake) {
+            tracker.metrics.tlsNanos = System.nanoTime() - tracker.secureConnectStart;
+        }
+
+        @Override
+        public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy,
+                               @Nullable Protocol protocol) {
+            tracker.metrics.connectNanos = System.nanoTime() - tracker.connectStart;
+        }
+
+        @Override
+        public void requestHeadersStart(Call call) {
+            tracker.requestHeadersStart = System.nanoTime();
+        }
+
+        @Override
+        public void requestBodyEnd(Call call, long byteCount) {
+            tracker.metrics.requestBytes = byteCount;
+        }
+
+        @Override
+        public void responseHeadersStart(Call call) {
+            tracker.metrics.ttfbNanos = System.nanoTime() - tracker.requestHeadersStart;
+        }
+
+        @Override
+        public void responseHeadersEnd(Call call, Response response) {
+            tracker.metrics.statusCode = response.code();
+            receiving.set(tracker);
+        }
+
+        @Override
+        public void responseBodyStart(Call call) {
+            tracker.responseBodyStart = System.nanoTime();
+        }
+
+        @Override
+        public void responseBodyEnd(Call call, long byteCount) {
+            tracker.metrics.bodyReadNanos = System.nanoTime() - tracker.responseBodyStart;
+            tracker.metrics.responseBytes = byteCount;
+        }
+
+        @Override
+        public void callEnd(Call call) {
+            end(null);
+        }
+
+        @Override
+        public void callFailed(Call call, IOException ioe) {
+            end(ioe);
+        }
+
+        private void end(@Nullable IOException failure) {
+            if (receiving.get() == tracker) {
+                receiving.remove();
+            }
+            synchronized (tracker) {
+                tracker.metrics.totalNanos = System.nanoTime() - tracker.callStart;
+                tracker.metrics.failure = failure;
+                tracker.networkDone = true;
+            }
+            reportIfComplete(tracker);
+        }
+    }
+
+    private class TimingConverter<T> implements Converter<ResponseBody, T> {
+        private final Converter<ResponseBody, T> delegate;
+
+        TimingConverter(Converter<ResponseBody, T> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public T convert(ResponseBody value) throws IOException {
+            Tracker tracker = receiving.get();
+            if (tracker == null) {
+                return delegate.convert(value);
+            }
+
+            // the call ends while the body is read, report it once parsing is done
+            receiving.remove();
+            synchronized (tracker) {
+                tracker.parsing = true;
+            }
+            long start = System.nanoTime();
+            try {
+                return delegate.convert(value);
+            } finally {
+                synchronized (tracker) {
+                    tracker.metrics.parseNanos = System.nanoTime() - start;
+                    tracker.parsing = false;
+                }
+                reportIfComplete(tracker);
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.adzerk.android.sdk;
+
+import com.adzerk.android.sdk.rest.Operation;
+
+import okhttp3.Request;
+import retrofit2.Invocation;
+
+/**
+ * Names of the SDK operations that http requests belong to.
+ */
+final class Operations {
+
+    // operations of AdzerkService methods, matching their @Operation annotations
+    static final String REQUEST_PLACEMENT = "RequestPlacement";
+    static final String SET_USER_PROPERTIES = "SetUserProperties";
+    static final String READ_USER = "ReadUser";
+    static final String SET_USER_INTEREST = "SetUserInterest";
+    static final String SET_USER_OPTOUT = "SetUserOptout";
+    static final String SET_USER_RETARGETING = "SetUserRetargeting";
+    static final String FIRE_PIXEL = "FirePixel";
+
+    // operations of requests made by the SDK itself
+    static final String PREFETCH_PLACEMENTS = "PrefetchPlacements";
+    static final String IMPRESSION = "Impression";
+    static final String WARM_UP = "WarmUp";
+    static final String UNKNOWN = "Unknown";
+
+    private Operations() {
+    }
+
+    /**
+     * Returns the operation of a request, from the {@link Operation} annotation of the service method that made it,
+     * or from its String tag for requests made by the SDK directly.
+     *
+     * @param request http request
+     * @return operation name
+     */
+    static String of(Request request) {
+        Invocation invocation = request.tag(Invocation.class);
+        if (invocation != null) {
+            Operation operation = invocation.method().getAnnotation(Operation.class);
+            if (operation != null) {
+                return operation.value();
+            }
+        }
+        String tag = request.tag(String.class);
+        return tag != null ? tag : UNKNOWN;
+    }
+}
@@ -0,0 +1,117 @@
+package com.adzerk.android.sdk;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+
+/**
+ * Collects tracking pixels fired within a short window and sends them together.
+ * <p>
+ * Bursts of pixels, such as video quartile events, are held until the flush window elapses or the batch is
+ * full, then all of their calls are enqueued at once. The requests go out back to back on the shared http
+ * client, so they are multiplexed over the same pooled connection and the radio wakes up once per batch rather
+ * than once per pixel. Each call keeps its own callback, so results are still delivered per pixel.
+ */
+class PixelBatcher {
+
+    static final long DEFAULT_FLUSH_WINDOW_MILLIS = 250L;
+    static final int DEFAULT_MAX_BATCH_SIZE = 10;
+
+    private final ScheduledExecutorService scheduler;
+    private final long flushWindowMillis;
+    private final int maxBatchSize;
+
+    private List<PendingPixel> batch = new ArrayList<>();
+    private ScheduledFuture<?> scheduledFlush;
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    /**
+     * @param scheduler         schedules the flush at the end of each window
+     * @param flushWindowMillis how long the first pixel of a batch may wait before the batch is sent
+     * @param maxBatchSize      number of pixels that sends the batch right away
+     */
+    PixelBatcher(ScheduledExecutorService scheduler, long flushWindowMillis, int maxBatchSize) {
+        this.scheduler = scheduler;
+        this.flushWindowMillis = flushWindowMillis;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Adds a pixel call to the current batch. The call is enqueued with its callback when the batch is flushed.
+     *
+     * @param call     pixel call, not yet executed
+     * @param callback receives the result of this pixel
+     */
+    void add(Call<Void> call, Callback<Void> callback) {
+        List<PendingPixel> ready = null;
+        synchronized (this) {
+            batch.add(new PendingPixel(call, callback));
+            if (batch.size() >= maxBatchSize) {
+                ready = drain();
+            } else if (scheduledFlush == null) {
+                scheduledFlush = scheduler.schedule(flushTask, flushWindowMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (ready != null) {
+            send(ready);
+        }
+    }
+
+    /**
+     * Sends the current batch immediately.
+     */
+    void flush() {
+        List<PendingPixel> ready;
+        synchronized (this) {
+            ready = drain();
+        }
+        send(ready);
+    }
+
+    /**
+     * Returns the number of pixels waiting for the current batch to be sent.
+     *
+     * @return batched pixel count
+     */
+    synchronized int getBatchedCount() {
+        return batch.size();
+    }
+
+    // Must hold the lock
+    private List<PendingPixel> drain() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        List<PendingPixel> ready = batch;
+        batch = new ArrayList<>();
+        return ready;
+    }
+
+    private void send(List<PendingPixel> ready) {
+        for (PendingPixel pixel : ready) {
+            pixel.call.enqueue(pixel.callback);
+        }
+    }
+
+    private static class PendingPixel {
+        final Call<Void> call;
+        final Callback<Void> callback;
+
+        PendingPixel(Call<Void> call, Callback<Void> callback) {
+            this.call = call;
+            this.callback = callback;
+        }
+    }
+}
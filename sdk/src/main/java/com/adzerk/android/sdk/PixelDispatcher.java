@@ -0,0 +1,314 @@
+package com.adzerk.android.sdk;
+
+import android.util.Log;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.HttpUrl;
+import okhttp3.Call;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Fires impression and tracking pixels on a small, bounded pool of worker threads.
+ * <p>
+ * Pixels are sent through the SDK's shared {@link okhttp3.OkHttpClient} so they reuse pooled connections to the
+ * decision host. When all workers are busy, pixels wait in a bounded queue; once the queue is full new
+ * pixels are rejected and {@link #dispatch(HttpUrl)} returns false so the caller can back off.
+ * <p>
+ * When a {@link PixelJournal} is provided, every pixel is journaled and acknowledged once the server responds.
+ * Pixels that fail with a network error or a 5xx status stay in the journal and are replayed with exponential
+ * backoff. All journal I/O runs on the single scheduler thread, never on the thread firing the pixel, which is
+ * usually the main thread; a pixel is held in memory as a {@link TrackedPixel} until its entry has been written.
+ */
+class PixelDispatcher {
+    static final String TAG = PixelDispatcher.class.getSimpleName();
+
+    static final int DEFAULT_MAX_CONCURRENCY = 2;
+    static final int DEFAULT_QUEUE_CAPACITY = 64;
+
+    // idle workers are released after this many seconds
+    static final long KEEP_ALIVE_SECONDS = 30L;
+
+    // replay delay doubles after each failed attempt, up to the maximum
+    static final long INITIAL_BACKOFF_MILLIS = 5000L;
+    static final long MAX_BACKOFF_MILLIS = 10 * 60 * 1000L;
+
+    private final Call.Factory client;
+    private final ThreadPoolExecutor executor;
+
+    @Nullable private final PixelJournal journal;
+    @Nullable private final ScheduledExecutorService scheduler;
+    private final Set<Long> inFlight = new HashSet<>();
+    private int failedAttempts;
+    private boolean replayScheduled;
+
+    PixelDispatcher(Call.Factory client, int maxConcurrency, int queueCapacity) {
+        this(client, maxConcurrency, queueCapacity, null, null);
+    }
+
+    /**
+     * @param journal   optional journal of undelivered pixels
+     * @param scheduler single-threaded scheduler that writes the journal and replays journaled pixels; required
+     *                  when a journal is given
+     */
+    PixelDispatcher(Call.Factory client, int maxConcurrency, int queueCapacity,
+                    @Nullable PixelJournal journal, @Nullable ScheduledExecutorService scheduler) {
+        this.client = client;
+        this.journal = journal;
+        this.scheduler = scheduler;
+        this.executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity),
+                new NamedThreadFactory("adzerk-pixel-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+
+        if (journal != null && journal.size() > 0) {
+            replay();
+        }
+    }
+
+    /**
+     * Queues a GET of the given pixel url.
+     * <p>
+     * If the queue is full the pixel is rejected. A journaled pixel is still kept and will be replayed later.
+     *
+     * @param url pixel url
+     * @return false if the pixel was rejected because the queue is full
+     */
+    boolean dispatch(final HttpUrl url) {
+        TrackedPixel pixel = track(url);
+        if (!submit(pixel, url)) {
+            AdzerkLog.w(TAG, "Pixel queue is full, %s pixel: %s", pixel == null ? "dropping" : "deferring", url);
+            failed(pixel);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Journals a pixel that is fired by the caller instead of the pixel workers. The entry is written on the
+     * scheduler thread. The caller reports the outcome through {@link #completed(TrackedPixel, int)},
+     * {@link #failed(TrackedPixel)} or {@link #cancelled(TrackedPixel)}.
+     *
+     * @param url fully resolved pixel url
+     * @return the tracked pixel, or null if journaling is disabled
+     */
+    @Nullable
+    TrackedPixel track(HttpUrl url) {
+        if (journal == null) {
+            return null;
+        }
+        final TrackedPixel pixel = new TrackedPixel(url, PixelJournal.NO_ID);
+        scheduler.execute(new Runnable() {
+            @Override
+            public void run() {
+                pixel.id = journal.append(pixel.url.toString());
+                if (pixel.id != PixelJournal.NO_ID) {
+                    synchronized (PixelDispatcher.this) {
+                        inFlight.add(pixel.id);
+                    }
+                }
+            }
+        });
+        return pixel;
+    }
+
+    /**
+     * Reports the server response for a journaled pixel. Server errors are retried, anything else is final.
+     *
+     * @param pixel tracked pixel, or null if it is not journaled
+     * @param statusCode HTTP status code
+     */
+    void completed(@Nullable TrackedPixel pixel, int statusCode) {
+        if (statusCode >= 500) {
+            failed(pixel);
+        } else {
+            delivered(pixel);
+        }
+    }
+
+    void delivered(@Nullable final TrackedPixel pixel) {
+        if (pixel == null) {
+            return;
+        }
+        scheduler.execute(new Runnable() {
+            @Override
+            public void run() {
+                acknowledge(pixel);
+                synchronized (PixelDispatcher.this) {
+                    failedAttempts = 0;
+                }
+            }
+        });
+    }
+
+    void failed(@Nullable final TrackedPixel pixel) {
+        if (pixel == null) {
+            return;
+        }
+        scheduler.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (pixel.id == PixelJournal.NO_ID) {
+                    return;
+                }
+                synchronized (PixelDispatcher.this) {
+                    inFlight.remove(pixel.id);
+                }
+                scheduleReplay();
+            }
+        });
+    }
+
+    /**
+     * Drops a journaled pixel that the app cancelled, so that it is not replayed.
+     *
+     * @param pixel tracked pixel, or null if it is not journaled
+     */
+    void cancelled(@Nullable final TrackedPixel pixel) {
+        if (pixel == null) {
+            return;
+        }
+        scheduler.execute(new Runnable() {
+            @Override
+            public void run() {
+                acknowledge(pixel);
+            }
+        });
+    }
+
+    /**
+     * Resends every journaled pixel that is not already in flight and resets the backoff. The pixels are read
+     * from the journal on the scheduler thread. Useful when the app knows connectivity has been restored.
+     */
+    void replay() {
+        if (journal == null) {
+            return;
+        }
+        scheduler.execute(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (PixelDispatcher.this) {
+                    failedAttempts = 0;
+                }
+                replayPending();
+            }
+        });
+    }
+
+    // Must run on the scheduler thread
+    private void acknowledge(TrackedPixel pixel) {
+        if (pixel.id == PixelJournal.NO_ID) {
+            return;
+        }
+        journal.acknowledge(pixel.id);
+        synchronized (this) {
+            inFlight.remove(pixel.id);
+        }
+    }
+
+    // Must run on the scheduler thread
+    private void replayPending() {
+        for (Map.Entry<Long, String> entry : journal.getPending().entrySet()) {
+            long id = entry.getKey();
+            HttpUrl url = HttpUrl.parse(entry.getValue());
+            if (url == null) {
+                journal.acknowledge(id);
+                continue;
+            }
+
+            synchronized (this) {
+                if (!inFlight.add(id)) {
+                    continue;
+                }
+            }
+            if (!submit(new TrackedPixel(url, id), url)) {
+                synchronized (this) {
+                    inFlight.remove(id);
+                }
+                scheduleReplay();
+                return;
+            }
+        }
+    }
+
+    private void scheduleReplay() {
+        long delay;
+        synchronized (this) {
+            if (replayScheduled) {
+                return;
+            }
+            replayScheduled = true;
+            delay = Math.min(INITIAL_BACKOFF_MILLIS << Math.min(failedAttempts, 16), MAX_BACKOFF_MILLIS);
+            failedAttempts++;
+        }
+
+        scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (PixelDispatcher.this) {
+                    replayScheduled = false;
+                }
+                replayPending();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private boolean submit(@Nullable TrackedPixel pixel, HttpUrl url) {
+        try {
+            executor.execute(new PixelTask(pixel, url));
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * A journaled pixel. Its journal id is assigned on the scheduler thread once the entry has been written, and is
+     * only read there.
+     */
+    static class TrackedPixel {
+        final HttpUrl url;
+        long id;
+
+        TrackedPixel(HttpUrl url, long id) {
+            this.url = url;
+            this.id = id;
+        }
+    }
+
+    private class PixelTask implements Runnable {
+        @Nullable private final TrackedPixel pixel;
+        private final HttpUrl url;
+
+        PixelTask(@Nullable TrackedPixel pixel, HttpUrl url) {
+            this.pixel = pixel;
+            this.url = url;
+        }
+
+        @Override
+        public void run() {
+            Request request = new Request.Builder().url(url).get().tag(String.class, Operations.IMPRESSION).build();
+            try (Response response = client.newCall(request).execute()) {
+                if (!response.isSuccessful() && !response.isRedirect() && AdzerkLog.isLoggable(Log.WARN)) {
+                    AdzerkLog.w(TAG, "Pixel returned status %d: %s", response.code(), url);
+                }
+                completed(pixel, response.code());
+            } catch (IOException e) {
+                AdzerkLog.e(TAG, "Failed to fire pixel: %s", url, e);
+                failed(pixel);
+            }
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.adzerk.android.sdk;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Append-only journal of tracking pixels that have not been delivered yet.
+ * <p>
+ * Each pixel url is written to the journal before it is fired, and an acknowledgement record is appended once
+ * the server has responded. On startup the journal is replayed to rebuild the set of pending pixels, so pixels
+ * fired while the device was offline survive a process restart. Acknowledged records are dropped by rewriting
+ * the file once enough of them have accumulated.
+ * <p>
+ * Record format, one per line: {@code +<id> <url>} for a pending pixel and {@code -<id>} for an acknowledgement.
+ */
+class PixelJournal {
+    static final String TAG = PixelJournal.class.getSimpleName();
+
+    static final String FILE_NAME = "adzerk-pixels.journal";
+    static final long NO_ID = -1L;
+
+    // oldest pixels are dropped once this many are pending
+    static final int DEFAULT_MAX_PENDING = 1000;
+
+    // rewrite the file once this many acknowledged records have accumulated
+    static final int COMPACT_THRESHOLD = 128;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File file;
+    private final int maxPending;
+    private final LinkedHashMap<Long, String> pending = new LinkedHashMap<>();
+    private long nextId = 1L;
+    private int staleRecords;
+    private Writer writer;
+
+    PixelJournal(File directory) throws IOException {
+        this(directory, DEFAULT_MAX_PENDING);
+    }
+
+    PixelJournal(File directory, int maxPending) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create pixel journal directory: " + directory);
+        }
+        this.file = new File(directory, FILE_NAME);
+        this.maxPending = maxPending;
+        load();
+        if (staleRecords >= COMPACT_THRESHOLD) {
+            compact();
+        } else {
+            openWriter();
+        }
+    }
+
+    /**
+     * Records a pixel url as pending.
+     *
+     * @param url fully resolved pixel url, including query parameters
+     * @return id of the journal entry, or {@link #NO_ID} if it could not be written
+     */
+    synchronized long append(String url) {
+        if (writer == null) {
+            return NO_ID;
+        }
+        long id = nextId++;
+        try {
+            writer.write("+" + id + " " + url + "\n");
+            writer.flush();
+        } catch (IOException e) {
+            AdzerkLog.e(TAG, "Failed to journal pixel: %s", url, e);
+            return NO_ID;
+        }
+        pending.put(id, url);
+
+        // bound the journal by dropping the oldest pending pixels
+        Iterator<Long> ids = pending.keySet().iterator();
+        while (pending.size() > maxPending && ids.hasNext()) {
+            long oldest = ids.next();
+            ids.remove();
+            writeAcknowledgement(oldest);
+        }
+        return id;
+    }
+
+    /**
+     * Removes a pixel from the pending set once it has been delivered.
+     *
+     * @param id journal entry id
+     */
+    synchronized void acknowledge(long id) {
+        if (pending.remove(id) == null) {
+            return;
+        }
+        writeAcknowledgement(id);
+        if (staleRecords >= COMPACT_THRESHOLD) {
+            compact();
+        }
+    }
+
+    /**
+     * Returns a snapshot of the pending pixels by journal id, oldest first.
+     *
+     * @return pending pixel urls
+     */
+    synchronized Map<Long, String> getPending() {
+        return new LinkedHashMap<>(pending);
+    }
+
+    /**
+     * Returns the number of pixels waiting to be delivered.
+     *
+     * @return pending pixel count
+     */
+    synchronized int size() {
+        return pending.size();
+    }
+
+    synchronized void close() {
+        closeWriter();
+    }
+
+    private void writeAcknowledgement(long id) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.write("-" + id + "\n");
+            writer.flush();
+            staleRecords += 2;
+        } catch (IOException e) {
+            AdzerkLog.e(TAG, "Failed to journal pixel acknowledgement", e);
+        }
+    }
+
+    private void load() throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+        int records = 0;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF_8));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.length() < 2) {
+                    continue;
+                }
+                try {
+                    if (line.charAt(0) == '+') {
+                        int separator = line.indexOf(' ');
+                        if (separator < 0) {
+                            continue;
+                        }
+                        long id = Long.parseLong(line.substring(1, separator));
+                        pending.put(id, line.substring(separator + 1));
+                        nextId = Math.max(nextId, id + 1);
+                    } else if (line.charAt(0) == '-') {
+                        pending.remove(Long.parseLong(line.substring(1)));
+                    }
+                    records++;
+                } catch (NumberFormatException e) {
+                    // a partially written record from an interrupted process; skip it
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        staleRecords = records - pending.size();
+    }
+
+    private void compact() {
+        closeWriter();
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            Writer out = new OutputStreamWriter(new FileOutputStream(tmp), UTF_8);
+            try {
+                for (Map.Entry<Long, String> entry : pending.entrySet()) {
+                    out.write("+" + entry.getKey() + " " + entry.getValue() + "\n");
+                }
+            } finally {
+                out.close();
+            }
+            if (!tmp.renameTo(file)) {
+                throw new IOException("Unable to replace pixel journal: " + file);
+            }
+            staleRecords = 0;
+        } catch (IOException e) {
+            AdzerkLog.e(TAG, "Failed to compact pixel journal", e);
+            tmp.delete();
+        }
+        try {
+            openWriter();
+        } catch (IOException e) {
+            AdzerkLog.e(TAG, "Failed to reopen pixel journal", e);
+        }
+    }
+
+    private void openWriter() throws IOException {
+        writer = new OutputStreamWriter(new FileOutputStream(file, true), UTF_8);
+    }
+
+    private void closeWriter() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                AdzerkLog.e(TAG, "Failed to close pixel journal", e);
+            }
+            writer = null;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.adzerk.android.sdk;
+
+import androidx.annotation.Nullable;
+
+import com.adzerk.android.sdk.AdzerkSdk.AdzerkError;
+import com.adzerk.android.sdk.AdzerkSdk.DecisionListener;
+import com.adzerk.android.sdk.rest.DecisionResponse;
+import com.adzerk.android.sdk.rest.Placement;
+import com.adzerk.android.sdk.rest.Request;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merges decision requests issued within a short window into a single multi-placement request.
+ * <p>
+ * Requests are compatible when everything but their placements serializes identically, i.e. they share the same
+ * user, keywords, consent, url and additional options. Compatible requests are held until the window elapses or
+ * the merged request is full, then sent as one Request. The DecisionResponse is split back per caller by
+ * placement {@code divName}, so each listener only sees the decisions for its own placements.
+ * <p>
+ * A request whose placement names clash with a pending batch starts a new batch, since the response could not be
+ * split back unambiguously.
+ */
+class PlacementAggregator {
+
+    static final long DEFAULT_WINDOW_MILLIS = 10L;
+    static final int DEFAULT_MAX_PLACEMENTS = 16;
+
+    /**
+     * Sends a (merged) request to the decision endpoint.
+     */
+    interface RequestSender {
+        void send(Request request, @Nullable DecisionListener listener);
+    }
+
+    private final ScheduledExecutorService scheduler;
+    private final Gson gson;
+    private final long windowMillis;
+    private final int maxPlacements;
+    private final RequestSender sender;
+
+    private final Map<String, Batch> batches = new HashMap<>();
+
+    /**
+     * @param scheduler     schedules sending each batch at the end of its window
+     * @param gson          gson used to serialize requests
+     * @param windowMillis  how long the first request of a batch may wait for others
+     * @param maxPlacements number of placements that sends the batch right away
+     * @param sender        sends the merged requests
+     */
+    PlacementAggregator(ScheduledExecutorService scheduler, Gson gson, long windowMillis, int maxPlacements,
+                        RequestSender sender) {
+        this.scheduler = scheduler;
+        this.gson = gson;
+        this.windowMillis = windowMillis;
+        this.maxPlacements = maxPlacements;
+        this.sender = sender;
+    }
+
+    /**
+     * Adds a request to the pending batch of compatible requests, or starts a new batch.
+     *
+     * @param request  ad request
+     * @param listener listener of the caller, may be null
+     */
+    void add(Request request, @Nullable DecisionListener listener) {
+        String key = compatibilityKey(request);
+        List<Batch> ready = new ArrayList<>(2);
+
+        synchronized (this) {
+            Batch batch = batches.get(key);
+            if (batch != null && !batch.accepts(request)) {
+                ready.add(remove(batch));
+                batch = null;
+            }
+            if (batch == null) {
+                batch = new Batch(key, request);
+                batches.put(key, batch);
+                batch.scheduledSend = scheduler.schedule(new SendTask(batch), windowMillis, TimeUnit.MILLISECONDS);
+            }
+            batch.add(request, listener);
+            if (batch.placementCount >= maxPlacements) {
+                ready.add(remove(batch));
+            }
+        }
+
+        for (Batch batch : ready) {
+            send(batch);
+        }
+    }
+
+    /**
+     * Returns the number of batches waiting to be sent.
+     *
+     * @return pending batch count
+     */
+    synchronized int getPendingCount() {
+        return batches.size();
+    }
+
+    // Everything but the placements, so that compatible requests share a key
+    private String compatibilityKey(Request request) {
+        JsonElement json = gson.toJsonTree(request);
+        if (json.isJsonObject()) {
+            json.getAsJsonObject().remove("placements");
+        }
+        return json.toString();
+    }
+
+    // Must hold the lock
+    private Batch remove(Batch batch) {
+        batches.remove(batch.key);
+        batch.scheduledSend.cancel(false);
+        return batch;
+    }
+
+    private void send(Batch batch) {
+        if (batch.callers.size() == 1) {
+            Caller caller = batch.callers.get(0);
+            sender.send(caller.request, caller.listener);
+            return;
+        }
+
+        List<Placement> placements = new ArrayList<>(batch.placementCount);
+        for (Caller caller : batch.callers) {
+            placements.addAll(caller.request.getPlacements());
+        }
+        sender.send(batch.template.withPlacements(placements), new SplitListener(batch.callers));
+    }
+
+    private class SendTask implements Runnable {
+        private final Batch batch;
+
+        SendTask(Batch batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void run() {
+            synchronized (PlacementAggregator.this) {
+                if (batches.get(batch.key) != batch) {
+                    // already sent because it was full
+                    return;
+                }
+                batches.remove(batch.key);
+            }
+            send(batch);
+        }
+    }
+
+    private class Batch {
+        final String key;
+        final Request template;
+        final List<Caller> callers = new ArrayList<>();
+        final Set<String> divNames = new HashSet<>();
+        int placementCount;
+        ScheduledFuture<?> scheduledSend;
+
+        Batch(String key, Request template) {
+            this.key = key;
+            this.template = template;
+        }
+
+        boolean accepts(Request request) {
+            if (placementCount + request.getPlacements().size() > maxPlacements) {
+                return false;
+            }
+            for (Placement placement : request.getPlacements()) {
+                if (divNames.contains(placement.getDivName())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void add(Request request, @Nullable DecisionListener listener) {
+            callers.add(new Caller(request, listener));
+            for (Placement placement : request.getPlacements()) {
+                divNames.add(placement.getDivName());
+            }
+            placementCount += request.getPlacements().size();
+        }
+    }
+
+    private static class Caller {
+        final Request request;
+        @Nullable final DecisionListener listener;
+
+        Caller(Request request, @Nullable DecisionListener listener) {
+            this.request = request;
+            this.listener = listener;
+        }
+
+        List<String> getDivNames() {
+            List<String> names = new ArrayList<>(request.getPlacements().size());
+            for (Placement placement : request.getPlacements()) {
+                names.add(placement.getDivName());
+            }
+            return names;
+        }
+    }
+
+    // Splits the response of a merged request back to each caller by placement name
+    private static class SplitListener implements DecisionListener {
+        private final List<Caller> callers;
+
+        SplitListener(List<Caller> callers) {
+            this.callers = callers;
+        }
+
+        @Override
+        public void success(DecisionResponse response) {
+            for (Caller caller : callers) {
+                if (caller.listener != null) {
+                    caller.listener.success(response != null ? response.forPlacements(caller.getDivNames()) : null);
+                }
+            }
+        }
+
+        @Override
+        public void error(AdzerkError error) {
+            for (Caller caller : callers) {
+                if (caller.listener != null) {
+                    caller.listener.error(error);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.adzerk.android.sdk;
+
+import com.adzerk.android.sdk.gson.Versioned;
+import com.adzerk.android.sdk.rest.Request;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+/**
+ * Writes the body of decision requests, reusing the JSON of users, consents and placements that are sent again
+ * unchanged.
+ * <p>
+ * The JSON of each {@link Versioned} object is kept with the version it was written at, and spliced into the body as
+ * is while the version stays the same; only the objects changed through their setters and adders since the last
+ * request are serialized again. Fragments are held weakly, so they go away with the objects they were written for.
+ * The body is written to an okio buffer, whose segments come from okio's shared pool.
+ */
+class RequestBodyEncoder extends Converter.Factory {
+    private static final MediaType MEDIA_TYPE = MediaType.parse("application/json; charset=UTF-8");
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final Gson gson;
+    private final Map<Object, Fragment> fragments = Collections.synchronizedMap(new WeakHashMap<Object, Fragment>());
+
+    private int reusedCount;
+    private int writtenCount;
+
+    /**
+     * @param gson gson of the SDK, with its type adapters
+     */
+    RequestBodyEncoder(Gson gson) {
+        this.gson = gson.newBuilder()
+                .registerTypeAdapterFactory(new FragmentAdapterFactory())
+                .create();
+    }
+
+    @Override
+    public Converter<?, RequestBody> requestBodyConverter(Type type, Annotation[] parameterAnnotations,
+                                                          Annotation[] methodAnnotations, Retrofit retrofit) {
+        if (type != Request.class) {
+            return null;
+        }
+        final TypeAdapter<Request> adapter = gson.getAdapter(Request.class);
+        return new Converter<Request, RequestBody>() {
+            @Override
+            public RequestBody convert(Request value) throws IOException {
+                Buffer buffer = new Buffer();
+                Writer writer = new OutputStreamWriter(buffer.outputStream(), UTF_8);
+                JsonWriter jsonWriter = gson.newJsonWriter(writer);
+                adapter.write(jsonWriter, value);
+                jsonWriter.close();
+                return RequestBody.create(MEDIA_TYPE, buffer.readByteString());
+            }
+        };
+    }
+
+    /**
+     * Returns the number of fragments spliced into request bodies without serializing their object again.
+     *
+     * @return reused fragment count
+     */
+    synchronized int getReusedCount() {
+        return reusedCount;
+    }
+
+    /**
+     * Returns the number of fragments serialized because their object was new or had changed.
+     *
+     * @return written fragment count
+     */
+    synchronized int getWrittenCount() {
+        return writtenCount;
+    }
+
+    private synchronized void count(boolean reused) {
+        if (reused) {
+            reusedCount++;
+        } else {
+            writtenCount++;
+        }
+    }
+
+    private static class Fragment {
+        final int version;
+        final String json;
+
+        Fragment(int version, String json) {
+            this.version = version;
+            this.json = json;
+        }
+    }
+
+    private class FragmentAdapterFactory implements TypeAdapterFactory {
+
+        @Override
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            if (!Versioned.class.isAssignableFrom(type.getRawType())) {
+                return null;
+            }
+            final TypeAdapter<T> delegate = gson.getDelegateAdapter(this, type);
+            return new TypeAdapter<T>() {
+                @Override
+                public void write(JsonWriter out, T value) throws IOException {
+                    // a JSON tree writer can not take raw JSON
+                    if (value == null || out.getClass() != JsonWriter.class) {
+                        delegate.write(out, value);
+                        return;
+                    }
+                    int version = ((Versioned) value).getVersion();
+                    Fragment fragment = fragments.get(value);
+                    boolean reused = fragment != null && fragment.version == version;
+                    if (!reused) {
+                        StringWriter json = new StringWriter();
+                        JsonWriter writer = new JsonWriter(json);
+                        writer.setHtmlSafe(out.isHtmlSafe());
+                        writer.setSerializeNulls(out.getSerializeNulls());
+                        delegate.write(writer, value);
+                        writer.flush();
+                        fragment = new Fragment(version, json.toString());
+                        fragments.put(value, fragment);
+                    }
+                    count(reused);
+                    out.jsonValue(fragment.json);
+                }
+
+                @Override
+                public T read(JsonReader in) throws IOException {
+                    return delegate.read(in);
+                }
+            };
+        }
+    }
+}
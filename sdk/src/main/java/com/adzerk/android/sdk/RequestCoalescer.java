@@ -0,0 +1,217 @@
+package com.adzerk.android.sdk;
+
+import androidx.annotation.Nullable;
+
+import com.adzerk.android.sdk.AdzerkSdk.AdzerkError;
+import com.adzerk.android.sdk.AdzerkSdk.DecisionListener;
+import com.adzerk.android.sdk.rest.DecisionResponse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import okhttp3.Request;
+import okio.Timeout;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * De-duplicates concurrent, identical decision requests.
+ * <p>
+ * Requests are keyed by their serialized JSON body, so two requests with the same placements, user, keywords and
+ * additional options share a key. While a request for a key is in flight, later requests for the same key join it
+ * instead of making their own network call, and the single {@link DecisionResponse} is delivered to every joined
+ * listener. The key is released as soon as the response arrives, so later requests always fetch fresh decisions.
+ * <p>
+ * Each caller gets its own handle to the shared call. Cancelling it drops only that caller's listener; the network
+ * call is cancelled once no caller is left.
+ */
+class RequestCoalescer {
+
+    /**
+     * Starts the network call of a request that no other caller has in flight.
+     */
+    interface CallFactory {
+        /**
+         * @param listener listener that fans the result out to every joined caller
+         * @return the enqueued call
+         */
+        Call<DecisionResponse> start(DecisionListener listener);
+    }
+
+    private final Map<String, SharedListener> inFlight = new HashMap<>();
+
+    /**
+     * Joins the in-flight request for the given key, or starts a new one with the factory.
+     *
+     * @param key      serialized request body
+     * @param listener listener of the caller, may be null
+     * @param factory  starts the call if no identical request is in flight
+     * @return call of this caller; cancelling it detaches the caller from the shared call
+     */
+    Call<DecisionResponse> join(String key, @Nullable DecisionListener listener, CallFactory factory) {
+        SharedListener shared;
+        boolean started;
+        synchronized (this) {
+            shared = inFlight.get(key);
+            started = shared == null;
+            if (started) {
+                shared = new SharedListener(key);
+                inFlight.put(key, shared);
+            }
+            shared.listeners.add(listener);
+        }
+        if (started) {
+            setCall(shared, factory.start(shared));
+        }
+        return new JoinedCall(shared, listener);
+    }
+
+    /**
+     * Returns the number of distinct requests currently in flight.
+     *
+     * @return in-flight request count
+     */
+    synchronized int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    private void setCall(SharedListener shared, Call<DecisionResponse> call) {
+        boolean abandoned;
+        synchronized (this) {
+            shared.call = call;
+            abandoned = shared.abandoned;
+        }
+        if (abandoned) {
+            call.cancel();
+        }
+    }
+
+    // Removes a caller's listener, cancelling the shared call if it was the last one
+    private void leave(SharedListener shared, @Nullable DecisionListener listener) {
+        Call<DecisionResponse> toCancel = null;
+        synchronized (this) {
+            if (!shared.listeners.remove(listener) || !shared.listeners.isEmpty() || shared.abandoned) {
+                return;
+            }
+            shared.abandoned = true;
+            release(shared);
+            toCancel = shared.call;
+        }
+        if (toCancel != null) {
+            toCancel.cancel();
+        }
+    }
+
+    private synchronized List<DecisionListener> complete(SharedListener shared) {
+        release(shared);
+        List<DecisionListener> listeners = new ArrayList<>(shared.listeners);
+        shared.listeners.clear();
+        return listeners;
+    }
+
+    // Must hold the lock; a new request may already use the key of an abandoned one
+    private void release(SharedListener shared) {
+        if (inFlight.get(shared.key) == shared) {
+            inFlight.remove(shared.key);
+        }
+    }
+
+    // Fans the result of one call out to every caller that joined it
+    private class SharedListener implements DecisionListener {
+        final String key;
+        // listeners of the callers, null for callers without one
+        final List<DecisionListener> listeners = new ArrayList<>();
+        @Nullable Call<DecisionResponse> call;
+        boolean abandoned;
+
+        SharedListener(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public void success(DecisionResponse response) {
+            for (DecisionListener listener : complete(this)) {
+                if (listener != null) {
+                    listener.success(response);
+                }
+            }
+        }
+
+        @Override
+        public void error(AdzerkError error) {
+            for (DecisionListener listener : complete(this)) {
+                if (listener != null) {
+                    listener.error(error);
+                }
+            }
+        }
+    }
+
+    // Handle of one caller to the shared call. It is already enqueued, so it can only be cancelled.
+    private class JoinedCall implements Call<DecisionResponse> {
+        private final SharedListener shared;
+        @Nullable private final DecisionListener listener;
+        private volatile boolean canceled;
+
+        JoinedCall(SharedListener shared, @Nullable DecisionListener listener) {
+            this.shared = shared;
+            this.listener = listener;
+        }
+
+        @Override
+        public void cancel() {
+            if (!canceled) {
+                canceled = true;
+                leave(shared, listener);
+            }
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled;
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return true;
+        }
+
+        @Override
+        public Response<DecisionResponse> execute() throws IOException {
+            throw new IllegalStateException("Already enqueued");
+        }
+
+        @Override
+        public void enqueue(Callback<DecisionResponse> callback) {
+            throw new IllegalStateException("Already enqueued");
+        }
+
+        @Override
+        public Call<DecisionResponse> clone() {
+            return sharedCall().clone();
+        }
+
+        @Override
+        public Request request() {
+            return sharedCall().request();
+        }
+
+        @Override
+        public Timeout timeout() {
+            return sharedCall().timeout();
+        }
+
+        private Call<DecisionResponse> sharedCall() {
+            synchronized (RequestCoalescer.this) {
+                if (shared.call == null) {
+                    throw new IllegalStateException("Call not started yet");
+                }
+                return shared.call;
+            }
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.adzerk.android.sdk;
+
+import androidx.annotation.Nullable;
+
+import com.adzerk.android.sdk.AdzerkSdk.AdzerkError;
+import com.adzerk.android.sdk.AdzerkSdk.DecisionListener;
+import com.adzerk.android.sdk.rest.DecisionResponse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import retrofit2.Call;
+
+/**
+ * Handle to a decision request, used to cancel it.
+ * <p>
+ * Cancelling aborts the http call, so the response is neither downloaded nor parsed, and the listener is not
+ * called. When the request shares a call with others, through request coalescing or placement batching, the call
+ * continues for them and only this request's listener is dropped.
+ * <p>
+ * Requests made with a tag, such as the Activity or Fragment that shows the ads, can be cancelled together with
+ * {@link AdzerkSdk#cancelAll(Object)}. The SDK only holds on to a tag until its requests complete.
+ */
+public class RequestHandle {
+
+    @Nullable private final Object tag;
+    @Nullable private final Registry registry;
+    @Nullable private Call<?> call;
+    private boolean cancelled;
+    private boolean done;
+
+    RequestHandle(@Nullable Object tag, @Nullable Registry registry) {
+        this.tag = tag;
+        this.registry = registry;
+    }
+
+    /**
+     * Cancels the request. The listener is not called after this returns.
+     */
+    public void cancel() {
+        Call<?> toCancel;
+        synchronized (this) {
+            if (cancelled || done) {
+                return;
+            }
+            cancelled = true;
+            toCancel = call;
+            call = null;
+        }
+        if (toCancel != null) {
+            toCancel.cancel();
+        }
+        unregister();
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Returns true once the listener has been called or the request was cancelled.
+     */
+    public synchronized boolean isDone() {
+        return done || cancelled;
+    }
+
+    @Nullable
+    public Object getTag() {
+        return tag;
+    }
+
+    /**
+     * Sets the http call of the request: its own call, or its handle to a call shared through request coalescing,
+     * whose cancellation only detaches this request. Requests merged by placement batching have none.
+     */
+    void setCall(@Nullable Call<?> call) {
+        boolean cancel;
+        synchronized (this) {
+            if (!done && !cancelled) {
+                this.call = call;
+            }
+            cancel = cancelled;
+        }
+        if (cancel && call != null) {
+            call.cancel();
+        }
+    }
+
+    /**
+     * Wraps the listener of the request so that it is dropped once the request is cancelled.
+     */
+    DecisionListener wrap(@Nullable final DecisionListener listener) {
+        return new DecisionListener() {
+            @Override
+            public void success(DecisionResponse response) {
+                if (complete() && listener != null) {
+                    listener.success(response);
+                }
+            }
+
+            @Override
+            public void error(AdzerkError error) {
+                if (complete() && listener != null) {
+                    listener.error(error);
+                }
+            }
+        };
+    }
+
+    // Returns false if the request was cancelled
+    private boolean complete() {
+        synchronized (this) {
+            if (cancelled || done) {
+                return false;
+            }
+            done = true;
+            call = null;
+        }
+        unregister();
+        return true;
+    }
+
+    private void unregister() {
+        if (registry != null && tag != null) {
+            registry.remove(this);
+        }
+    }
+
+    /**
+     * Pending requests by tag.
+     */
+    static class Registry {
+        private final Map<Object, List<RequestHandle>> handles = new HashMap<>();
+
+        synchronized void add(RequestHandle handle) {
+            List<RequestHandle> tagged = handles.get(handle.tag);
+            if (tagged == null) {
+                tagged = new ArrayList<>(2);
+                handles.put(handle.tag, tagged);
+            }
+            tagged.add(handle);
+        }
+
+        synchronized void remove(RequestHandle handle) {
+            List<RequestHandle> tagged = handles.get(handle.tag);
+            if (tagged != null && tagged.remove(handle) && tagged.isEmpty()) {
+                handles.remove(handle.tag);
+            }
+        }
+
+        void cancelAll(Object tag) {
+            List<RequestHandle> tagged;
+            synchronized (this) {
+                tagged = handles.remove(tag);
+            }
+            if (tagged != null) {
+                for (RequestHandle handle : tagged) {
+                    handle.cancel();
+                }
+            }
+        }
+
+        synchronized int size() {
+            int size = 0;
+            for (List<RequestHandle> tagged : handles.values()) {
+                size += tagged.size();
+            }
+            return size;
+        }
+    }
+}
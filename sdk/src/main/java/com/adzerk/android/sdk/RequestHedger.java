@@ -0,0 +1,303 @@
+package com.adzerk.android.sdk;
+
+import android.util.Log;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Request;
+import okio.Timeout;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Hedges decision requests to cut tail latency.
+ * <p>
+ * If a request has no response once the hedge delay has passed, a duplicate request is sent on a separate connection
+ * and whichever response arrives first is delivered, cancelling the other call. The delay is the configured
+ * percentile of recent decision latencies, or the initial delay until enough latencies have been sampled, so only
+ * the slowest requests are duplicated. Hedging is safe because a decision does not count an impression until its
+ * impression url is fired.
+ * <p>
+ * A request that fails before the hedge delay is reported as is; once both calls are in flight, a failure is only
+ * reported if the other call fails too.
+ */
+class RequestHedger {
+    static final String TAG = RequestHedger.class.getSimpleName();
+
+    // latencies kept for the percentile, and how many are needed before it replaces the initial delay
+    static final int SAMPLE_CAPACITY = 64;
+    static final int MIN_SAMPLES = 16;
+
+    /**
+     * Creates the duplicate of a call, usually on a client with its own connection pool.
+     */
+    interface CallFactory<T> {
+        Call<T> newHedge();
+    }
+
+    private final ScheduledExecutorService scheduler;
+    private final int percentile;
+    @Nullable private final MetricsRecorder metricsRecorder;
+
+    private final long[] samples = new long[SAMPLE_CAPACITY];
+    private int sampleCount;
+    private int nextSample;
+    private long delayMillis;
+    private boolean delayStale;
+
+    private int hedgedCount;
+    private int hedgeWinCount;
+
+    /**
+     * @param scheduler          starts the duplicate requests
+     * @param percentile         percentile of recent latencies used as the hedge delay, from 1 to 99
+     * @param initialDelayMillis hedge delay until enough latencies have been sampled
+     * @param metricsRecorder    keeps one metrics record per hedged request, or null
+     */
+    RequestHedger(ScheduledExecutorService scheduler, int percentile, long initialDelayMillis,
+                  @Nullable MetricsRecorder metricsRecorder) {
+        this.scheduler = scheduler;
+        this.percentile = percentile;
+        this.delayMillis = initialDelayMillis;
+        this.metricsRecorder = metricsRecorder;
+    }
+
+    /**
+     * Wraps a call so that it is hedged once enqueued. Synchronous execution is not hedged.
+     *
+     * @param primary call of the request
+     * @param factory creates the duplicate call
+     * @return hedged call
+     */
+    <T> Call<T> hedge(Call<T> primary, CallFactory<T> factory) {
+        return new HedgedCall<>(primary, factory);
+    }
+
+    /**
+     * Returns the current hedge delay.
+     *
+     * @return delay in milliseconds
+     */
+    synchronized long getDelayMillis() {
+        if (delayStale) {
+            long[] sorted = Arrays.copyOf(samples, sampleCount);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+            delayMillis = sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+            delayStale = false;
+        }
+        return delayMillis;
+    }
+
+    /**
+     * Returns the number of requests that sent a duplicate.
+     *
+     * @return hedged request count
+     */
+    synchronized int getHedgedCount() {
+        return hedgedCount;
+    }
+
+    /**
+     * Returns the number of requests answered by their duplicate.
+     *
+     * @return count of requests won by the hedge
+     */
+    synchronized int getHedgeWinCount() {
+        return hedgeWinCount;
+    }
+
+    // A response arriving after the hedge delay is recorded when it arrives, a lower bound of the latency of the
+    // first call, so that hedging does not pull the percentile down
+    synchronized void record(long latencyMillis) {
+        samples[nextSample] = latencyMillis;
+        nextSample = (nextSample + 1) % SAMPLE_CAPACITY;
+        if (sampleCount < SAMPLE_CAPACITY) {
+            sampleCount++;
+        }
+        delayStale = sampleCount >= MIN_SAMPLES;
+    }
+
+    private synchronized void hedgeStarted() {
+        hedgedCount++;
+    }
+
+    private synchronized void hedgeWon() {
+        hedgeWinCount++;
+    }
+
+    private class HedgedCall<T> implements Call<T> {
+        private final Call<T> primary;
+        private final CallFactory<T> factory;
+
+        private Callback<T> callback;
+        private long startNanos;
+        @Nullable private Call<T> hedge;
+        @Nullable private ScheduledFuture<?> scheduledHedge;
+        private int pendingCount;
+        private boolean done;
+        private boolean canceled;
+
+        HedgedCall(Call<T> primary, CallFactory<T> factory) {
+            this.primary = primary;
+            this.factory = factory;
+        }
+
+        @Override
+        public void enqueue(Callback<T> callback) {
+            synchronized (this) {
+                this.callback = callback;
+                this.startNanos = System.nanoTime();
+                this.pendingCount = 1;
+            }
+            primary.enqueue(new HedgeCallback(primary));
+            long delay = getDelayMillis();
+            synchronized (this) {
+                if (!done && !canceled) {
+                    scheduledHedge = scheduler.schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                            startHedge();
+                        }
+                    }, delay, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+
+        private void startHedge() {
+            Call<T> call;
+            synchronized (this) {
+                if (done || canceled) {
+                    return;
+                }
+                call = factory.newHedge();
+                // a deadline of the request also bounds the duplicate
+                long timeoutNanos = primary.timeout().timeoutNanos();
+                if (timeoutNanos > 0) {
+                    long remainingNanos = timeoutNanos - (System.nanoTime() - startNanos);
+                    if (remainingNanos <= 0) {
+                        return;
+                    }
+                    call.timeout().timeout(remainingNanos, TimeUnit.NANOSECONDS);
+                }
+                hedge = call;
+                pendingCount++;
+            }
+            if (metricsRecorder != null) {
+                metricsRecorder.hedgeStarted(call.request());
+            }
+            hedgeStarted();
+            if (AdzerkLog.isLoggable(Log.DEBUG)) {
+                AdzerkLog.d(TAG, "Hedging decision request after %dms",
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+            }
+            call.enqueue(new HedgeCallback(call));
+        }
+
+        // Returns whether a completed call settles the request, in which case the other call is no longer needed
+        private synchronized boolean complete(boolean failed) {
+            pendingCount--;
+            if (done || (failed && pendingCount > 0)) {
+                return false;
+            }
+            done = true;
+            if (scheduledHedge != null) {
+                scheduledHedge.cancel(false);
+            }
+            return true;
+        }
+
+        @Nullable
+        private synchronized Call<T> other(Call<T> call) {
+            return call == primary ? hedge : primary;
+        }
+
+        @Override
+        public Response<T> execute() throws IOException {
+            return primary.execute();
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return primary.isExecuted();
+        }
+
+        @Override
+        public void cancel() {
+            Call<T> hedgeCall;
+            synchronized (this) {
+                canceled = true;
+                if (scheduledHedge != null) {
+                    scheduledHedge.cancel(false);
+                }
+                hedgeCall = hedge;
+            }
+            primary.cancel();
+            if (hedgeCall != null) {
+                hedgeCall.cancel();
+            }
+        }
+
+        @Override
+        public synchronized boolean isCanceled() {
+            return canceled || primary.isCanceled();
+        }
+
+        @Override
+        public Call<T> clone() {
+            return new HedgedCall<>(primary.clone(), factory);
+        }
+
+        // Metrics of the request are kept under the first call's request, even when the duplicate answers
+        @Override
+        public Request request() {
+            return primary.request();
+        }
+
+        @Override
+        public Timeout timeout() {
+            return primary.timeout();
+        }
+
+        private class HedgeCallback implements Callback<T> {
+            private final Call<T> call;
+
+            HedgeCallback(Call<T> call) {
+                this.call = call;
+            }
+
+            @Override
+            public void onResponse(Call<T> ignored, Response<T> response) {
+                if (!complete(false)) {
+                    // the other call has already answered and cancelled this one
+                    return;
+                }
+                if (call != primary) {
+                    hedgeWon();
+                    if (metricsRecorder != null) {
+                        metricsRecorder.hedgeWon(primary.request(), call.request());
+                    }
+                }
+                Call<T> loser = other(call);
+                if (loser != null) {
+                    loser.cancel();
+                }
+                record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+                callback.onResponse(HedgedCall.this, response);
+            }
+
+            @Override
+            public void onFailure(Call<T> ignored, Throwable t) {
+                if (complete(true)) {
+                    callback.onFailure(HedgedCall.this, t);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.adzerk.android.sdk;
+
+/**
+ * Timing of the connection warm-up performed when the SDK is built.
+ *
+ * @see AdzerkSdk.Builder#warmUp(AdzerkSdk.WarmUpListener)
+ */
+public class WarmUpTiming {
+
+    long dnsMillis;
+    long connectMillis;
+
+    public WarmUpTiming(long dnsMillis, long connectMillis) {
+        this.dnsMillis = dnsMillis;
+        this.connectMillis = connectMillis;
+    }
+
+    /**
+     * Time taken to resolve the decision hostname
+     * @return milliseconds
+     */
+    public long getDnsMillis() {
+        return dnsMillis;
+    }
+
+    /**
+     * Time taken to connect, including the TLS handshake, and receive the first response
+     * @return milliseconds
+     */
+    public long getConnectMillis() {
+        return connectMillis;
+    }
+
+    /**
+     * Total warm-up time
+     * @return milliseconds
+     */
+    public long getTotalMillis() {
+        return dnsMillis + connectMillis;
+    }
+}
@@ -0,0 +1,18 @@
+package com.adzerk.android.sdk.gson;
+
+import com.adzerk.android.sdk.rest.ContentData;
+import com.google.gson.JsonDeserializationContext;
+import com.google.gson.JsonDeserializer;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+
+import java.lang.reflect.Type;
+
+// Capture the JsonObject for the 'data' element; ContentData converts it to maps on first access
+public class ContentDataDeserializer implements JsonDeserializer<ContentData> {
+
+    @Override
+    public ContentData deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
+        return new ContentData(json.getAsJsonObject());
+    }
+}
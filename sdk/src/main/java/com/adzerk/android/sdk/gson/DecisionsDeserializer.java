@@ -16,6 +16,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+/**
+ * Tree-based deserializer for the 'decisions' element of a DecisionResponse.
+ *
+ * @deprecated DecisionResponse now streams decisions with {@link DecisionsTypeAdapterFactory}, which does not
+ * build a JsonElement tree of the whole response first.
+ */
+@Deprecated
 public class DecisionsDeserializer implements JsonDeserializer<Map<String, List<Decision>>> {
 
     @Override
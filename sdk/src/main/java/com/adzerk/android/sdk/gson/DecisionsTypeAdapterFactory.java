@@ -0,0 +1,115 @@
+package com.adzerk.android.sdk.gson;
+
+import com.adzerk.android.sdk.rest.Decision;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams the 'decisions' element of a DecisionResponse directly into {@link Decision} objects.
+ * <p>
+ * Each placement maps either to a single Decision object (single-winner response), to an array of Decisions
+ * (multi-winner response) or to null when no ad was selected. Both shapes are read into a list of Decisions per
+ * placement in one pass over the {@link JsonReader}, without building an intermediate JsonElement tree.
+ */
+public class DecisionsTypeAdapterFactory implements TypeAdapterFactory {
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        if (!Map.class.isAssignableFrom(type.getRawType())) {
+            return null;
+        }
+        return (TypeAdapter<T>) new DecisionsTypeAdapter(gson.getAdapter(Decision.class));
+    }
+
+    static class DecisionsTypeAdapter extends TypeAdapter<Map<String, List<Decision>>> {
+        private final TypeAdapter<Decision> decisionAdapter;
+
+        DecisionsTypeAdapter(TypeAdapter<Decision> decisionAdapter) {
+            this.decisionAdapter = decisionAdapter;
+        }
+
+        @Override
+        public Map<String, List<Decision>> read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+
+            Map<String, List<Decision>> decisions = new HashMap<>();
+            in.beginObject();
+            while (in.hasNext()) {
+                String placementName = in.nextName();
+                decisions.put(placementName, readDecisions(in));
+            }
+            in.endObject();
+            return decisions;
+        }
+
+        private List<Decision> readDecisions(JsonReader in) throws IOException {
+            switch (in.peek()) {
+                case BEGIN_ARRAY:
+                    // multi-winners response
+                    List<Decision> decisionList = new ArrayList<>();
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        if (in.peek() == JsonToken.BEGIN_OBJECT) {
+                            decisionList.add(decisionAdapter.read(in));
+                        } else {
+                            in.skipValue();
+                        }
+                    }
+                    in.endArray();
+                    return decisionList;
+
+                case BEGIN_OBJECT:
+                    // single winner response
+                    List<Decision> singleWinner = new ArrayList<>(1);
+                    singleWinner.add(decisionAdapter.read(in));
+                    return singleWinner;
+
+                case NULL:
+                    in.nextNull();
+                    return null;
+
+                default:
+                    throw new JsonParseException("Expected Object or null");
+            }
+        }
+
+        @Override
+        public void write(JsonWriter out, Map<String, List<Decision>> decisions) throws IOException {
+            if (decisions == null) {
+                out.nullValue();
+                return;
+            }
+
+            out.beginObject();
+            for (Map.Entry<String, List<Decision>> entry : decisions.entrySet()) {
+                out.name(entry.getKey());
+                if (entry.getValue() == null) {
+                    out.nullValue();
+                    continue;
+                }
+                out.beginArray();
+                for (Decision decision : entry.getValue()) {
+                    decisionAdapter.write(out, decision);
+                }
+                out.endArray();
+            }
+            out.endObject();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.adzerk.android.sdk.gson;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Caches the JSON of field values that never change, so that the objects sharing them are serialized without
+ * writing those values again. Used by {@link FlattenTypeAdapterFactory}.
+ */
+public interface FieldJsonCache {
+
+    /**
+     * Returns whether a field holds a shared value whose JSON is cached.
+     *
+     * @param fieldName  serialized name of the field
+     * @param fieldValue current value of the field
+     * @return true if the value is shared
+     */
+    boolean isShared(String fieldName, Object fieldValue);
+
+    /**
+     * Returns the cached JSON of a shared field value.
+     *
+     * @param fieldName serialized name of the field
+     * @return JSON of the value, or null if it has not been written yet
+     */
+    @Nullable
+    String getJson(String fieldName);
+
+    /**
+     * Caches the JSON of a shared field value.
+     *
+     * @param fieldName serialized name of the field
+     * @param json      JSON of the value
+     */
+    void putJson(String fieldName, String json);
+}
@@ -1,75 +1,178 @@
 package com.adzerk.android.sdk.gson;
 
+import androidx.annotation.Nullable;
+
 import com.adzerk.android.sdk.rest.AdditionalOptions;
+import com.adzerk.android.sdk.rest.Placement;
 import com.google.gson.Gson;
 import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
 import com.google.gson.JsonSyntaxException;
 import com.google.gson.TypeAdapter;
 import com.google.gson.TypeAdapterFactory;
+import com.google.gson.annotations.SerializedName;
 import com.google.gson.reflect.TypeToken;
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonWriter;
 
 import java.io.IOException;
+import java.io.StringWriter;
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
+/**
+ * Serializes classes annotated with {@link FlattenAdditionalOptions} so that the entries of their
+ * {@link AdditionalOptions} field are written as attributes of the object itself.
+ * <p>
+ * The serializable fields of an annotated class are looked up once, when Gson asks for its adapter, and written
+ * straight to the {@link JsonWriter} followed by the additional options. No intermediate JsonElement tree is built.
+ * Fields declared as {@code Object} are written with the adapter of their runtime type. Deserialization is left to
+ * the default adapter.
+ * <p>
+ * For a {@link Placement} created from a {@link com.adzerk.android.sdk.rest.PlacementTemplate}, the values it shares
+ * with its template are written once and their JSON is reused from the template's {@link FieldJsonCache}.
+ */
 public class FlattenTypeAdapterFactory implements TypeAdapterFactory {
 
     @Override
     public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        Class<? super T> rawType = type.getRawType();
+        FlattenAdditionalOptions annotation = rawType.getAnnotation(FlattenAdditionalOptions.class);
+        if (annotation == null) {
+            return null;
+        }
+
+        String fieldName = annotation.fieldName();
+        if (fieldName == null) {
+            throw new JsonSyntaxException("FlattenAdditionalOptions annotation must specify a 'fieldName'");
+        }
+
+        Field additionalOptionsField;
+        try {
+            additionalOptionsField = rawType.getDeclaredField(fieldName);
+        } catch (NoSuchFieldException e) {
+            throw new JsonSyntaxException(e);
+        }
+        if (additionalOptionsField.getType() != AdditionalOptions.class) {
+            throw new JsonSyntaxException("Field '" + fieldName + "' is expected to have type AdditionalOptions" );
+        }
+        additionalOptionsField.setAccessible(true);
+
+        List<BoundField> boundFields = new ArrayList<>();
+        for (Class<?> c = rawType; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (field.equals(additionalOptionsField) || !isSerialized(field)) {
+                    continue;
+                }
+                field.setAccessible(true);
+                boundFields.add(new BoundField(field, gson.getAdapter(TypeToken.get(field.getGenericType()))));
+            }
+        }
 
-        final TypeAdapter<T> delegateAdapter = gson.getDelegateAdapter(this, type);
-
-        TypeAdapter<T> result = new TypeAdapter<T>() {
-
-            @Override
-            public void write(JsonWriter out, T value) throws IOException {
-                // use delegate for initial serialization
-                JsonElement res = delegateAdapter.toJsonTree(value);
+        return new FlattenTypeAdapter<>(gson, gson.getDelegateAdapter(this, type), boundFields, additionalOptionsField)
+                .nullSafe();
+    }
 
-                // check for annotation - remove specified wrapper field and re-add additional options directly to root
-                if (res.isJsonObject() && value.getClass().isAnnotationPresent(FlattenAdditionalOptions.class)) {
-                    JsonObject jsonObject = res.getAsJsonObject();
+    private static boolean isSerialized(Field field) {
+        int modifiers = field.getModifiers();
+        return !Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !field.isSynthetic();
+    }
 
-                    FlattenAdditionalOptions annotation = value.getClass().getAnnotation(FlattenAdditionalOptions.class);
-                    String fieldName = annotation.fieldName();
-                    if (fieldName == null) {
-                        throw new JsonSyntaxException("FlattenAdditionalOptions annotation must specify a 'fieldName'");
-                    }
+    private static class FlattenTypeAdapter<T> extends TypeAdapter<T> {
+        private final Gson gson;
+        private final TypeAdapter<T> delegateAdapter;
+        private final List<BoundField> boundFields;
+        private final Field additionalOptionsField;
+        private final TypeAdapter<JsonElement> elementAdapter;
+
+        FlattenTypeAdapter(Gson gson, TypeAdapter<T> delegateAdapter, List<BoundField> boundFields,
+                           Field additionalOptionsField) {
+            this.gson = gson;
+            this.delegateAdapter = delegateAdapter;
+            this.boundFields = boundFields;
+            this.additionalOptionsField = additionalOptionsField;
+            this.elementAdapter = gson.getAdapter(JsonElement.class);
+        }
+
+        @Override
+        public void write(JsonWriter out, T value) throws IOException {
+            try {
+                // cached JSON can only be copied to a writer that has a character stream
+                FieldJsonCache cache = value instanceof Placement && out.getClass() == JsonWriter.class
+                        ? ((Placement) value).getTemplate()
+                        : null;
+                out.beginObject();
+                for (BoundField boundField : boundFields) {
+                    boundField.write(gson, out, value, cache);
+                }
 
-                    try {
-                        Field additionalOptionsField = value.getClass().getDeclaredField(fieldName);
-                        if (additionalOptionsField.getType() != AdditionalOptions.class) {
-                            throw new JsonSyntaxException("Field '" + fieldName + "' is expected to have type AdditionalOptions" );
-                        }
-
-                        // remove default serialized object containing additional options by named field
-                        jsonObject.remove(fieldName);
-
-                        // now append any additional options directly to root of the object
-                        AdditionalOptions additionalOptions = (AdditionalOptions) additionalOptionsField.get(value);
-                        if (additionalOptions != null && additionalOptions.getAll() != null && !additionalOptions.getAll().isEmpty()) {
-                            for (Map.Entry<String, JsonElement> option : additionalOptions.getAll().entrySet()) {
-                                jsonObject.add(option.getKey(), option.getValue());
-                            }
-                        }
-                    } catch (NoSuchFieldException | IllegalAccessException e) {
-                       throw new JsonSyntaxException(e);
+                // append any additional options directly to root of the object
+                AdditionalOptions additionalOptions = (AdditionalOptions) additionalOptionsField.get(value);
+                if (additionalOptions != null && additionalOptions.getAll() != null) {
+                    for (Map.Entry<String, JsonElement> option : additionalOptions.getAll().entrySet()) {
+                        out.name(option.getKey());
+                        elementAdapter.write(out, option.getValue());
                     }
                 }
-
-                gson.toJson(res, out);
+                out.endObject();
+            } catch (IllegalAccessException e) {
+                throw new JsonSyntaxException(e);
             }
+        }
 
-            @Override
-            public T read(JsonReader in) throws IOException {
-                return delegateAdapter.read(in);
-            }
+        @Override
+        public T read(JsonReader in) throws IOException {
+            return delegateAdapter.read(in);
+        }
+    }
 
-        }.nullSafe();
+    // Serializable field with its adapter, resolved once per class
+    private static class BoundField {
+        private final Field field;
+        private final String name;
+        private final TypeAdapter<Object> adapter;
+
+        @SuppressWarnings("unchecked")
+        BoundField(Field field, TypeAdapter<?> adapter) {
+            SerializedName serializedName = field.getAnnotation(SerializedName.class);
+            this.field = field;
+            this.name = serializedName != null ? serializedName.value() : field.getName();
+            this.adapter = (TypeAdapter<Object>) adapter;
+        }
+
+        void write(Gson gson, JsonWriter out, Object instance, @Nullable FieldJsonCache cache)
+                throws IOException, IllegalAccessException {
+            Object fieldValue = field.get(instance);
+            out.name(name);
+            if (cache == null || !cache.isShared(name, fieldValue)) {
+                writeValue(gson, out, fieldValue);
+                return;
+            }
 
-        return result;
+            String json = cache.getJson(name);
+            if (json == null) {
+                StringWriter buffer = new StringWriter();
+                JsonWriter writer = new JsonWriter(buffer);
+                writer.setHtmlSafe(out.isHtmlSafe());
+                writer.setSerializeNulls(out.getSerializeNulls());
+                writeValue(gson, writer, fieldValue);
+                json = buffer.toString();
+                cache.putJson(name, json);
+            }
+            out.jsonValue(json);
+        }
+
+        @SuppressWarnings("unchecked")
+        private void writeValue(Gson gson, JsonWriter out, Object fieldValue) throws IOException {
+            if (fieldValue == null) {
+                out.nullValue();
+            } else if (field.getType() == Object.class) {
+                ((TypeAdapter<Object>) gson.getAdapter(fieldValue.getClass())).write(out, fieldValue);
+            } else {
+                adapter.write(out, fieldValue);
+            }
+        }
     }
 }
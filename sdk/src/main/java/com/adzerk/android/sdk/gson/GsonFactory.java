@@ -0,0 +1,24 @@
+package com.adzerk.android.sdk.gson;
+
+import com.adzerk.android.sdk.rest.ContentData;
+import com.adzerk.android.sdk.rest.UserProperties;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * Creates the Gson instance the SDK uses to serialize Requests and parse responses.
+ */
+public class GsonFactory {
+
+    private GsonFactory() {
+    }
+
+    public static Gson create() {
+        return new GsonBuilder()
+              .registerTypeAdapterFactory(new FlattenTypeAdapterFactory())
+              .registerTypeAdapter(ContentData.class, new ContentDataDeserializer())
+              .registerTypeAdapter(UserProperties.class, new UserPropertiesDeserializer())
+              .setLenient()
+              .create();
+    }
+}
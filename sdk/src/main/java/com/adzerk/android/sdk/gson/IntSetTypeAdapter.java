@@ -0,0 +1,43 @@
+package com.adzerk.android.sdk.gson;
+
+import com.adzerk.android.sdk.rest.IntSet;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Writes an {@link IntSet} as a JSON array of numbers straight from its primitive values, without boxing.
+ */
+public class IntSetTypeAdapter extends TypeAdapter<IntSet> {
+
+    @Override
+    public void write(JsonWriter out, IntSet value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginArray();
+        for (int i = 0; i < value.size(); i++) {
+            out.value(value.valueAt(i));
+        }
+        out.endArray();
+    }
+
+    @Override
+    public IntSet read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        IntSet set = new IntSet();
+        in.beginArray();
+        while (in.hasNext()) {
+            set.add(in.nextInt());
+        }
+        in.endArray();
+        return set;
+    }
+}
@@ -0,0 +1,43 @@
+package com.adzerk.android.sdk.gson;
+
+import com.adzerk.android.sdk.rest.LongList;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Writes a {@link LongList} as a JSON array of numbers straight from its primitive values, without boxing.
+ */
+public class LongListTypeAdapter extends TypeAdapter<LongList> {
+
+    @Override
+    public void write(JsonWriter out, LongList value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginArray();
+        for (int i = 0; i < value.size(); i++) {
+            out.value(value.getLong(i));
+        }
+        out.endArray();
+    }
+
+    @Override
+    public LongList read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        LongList list = new LongList();
+        in.beginArray();
+        while (in.hasNext()) {
+            list.addLong(in.nextLong());
+        }
+        in.endArray();
+        return list;
+    }
+}
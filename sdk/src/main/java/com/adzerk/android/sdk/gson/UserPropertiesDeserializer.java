@@ -0,0 +1,22 @@
+package com.adzerk.android.sdk.gson;
+
+import com.adzerk.android.sdk.rest.UserProperties;
+import com.google.gson.JsonDeserializationContext;
+import com.google.gson.JsonDeserializer;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+
+import java.lang.reflect.Type;
+import java.util.Map;
+
+// Capture the default deserialization and JsonObject for the 'custom' element
+public class UserPropertiesDeserializer implements JsonDeserializer<UserProperties> {
+
+    @Override
+    public UserProperties deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
+        JsonObject dataObject = json.getAsJsonObject();
+        Map<String, Object> map = context.deserialize(dataObject, Map.class);
+        return new UserProperties(map, dataObject);
+    }
+}
@@ -0,0 +1,15 @@
+package com.adzerk.android.sdk.gson;
+
+/**
+ * Implemented by request objects that track their changes, so that the JSON written for them can be reused as long
+ * as they are not changed.
+ */
+public interface Versioned {
+
+    /**
+     * Returns a number that changes whenever the object is changed through its setters and adders.
+     *
+     * @return version of the object
+     */
+    int getVersion();
+}
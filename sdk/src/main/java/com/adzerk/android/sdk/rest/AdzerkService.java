@@ -23,6 +23,7 @@ public interface AdzerkService {
      * <p/>
      * NOTE: The placement in the Request corresponds to an ad placement on a page or app.
      */
+    @Operation("RequestPlacement")
     @POST("/api/v2")
     Call<DecisionResponse> request(@Body Request request);
 
@@ -31,6 +32,7 @@ public interface AdzerkService {
      * <p/>
      * Example: POST http://engine.adzerk.net/udb/{networkId}/custom?userKey=<user-key>
      */
+    @Operation("SetUserProperties")
     @POST("/udb/{networkId}/custom")
     Call<Void> postUserProperties(@Path("networkId") long networkId, @Query("userKey") String userKey, @Body RequestBody body);
 
@@ -42,6 +44,7 @@ public interface AdzerkService {
      * NOTE: Using this default content-type header fails with 400 Bad Request error:
      *       Content-Type: application/json; charset=UTF-8
      */
+    @Operation("SetUserProperties")
     @Headers( "Content-Type: application/json" )
     @POST("/udb/{networkId}/custom")
     Call<Void> postUserProperties(@Path("networkId") long networkId, @Query("userKey") String userKey, @Body Map<String, Object> body);
@@ -53,6 +56,7 @@ public interface AdzerkService {
      * <p/>
      * Example:  GET http://engine.adzerk.net/udb/{networkid}/read?userKey=<user-key>
      */
+    @Operation("ReadUser")
     @GET("/udb/{networkId}/read")
     Call<User> readUser(@Path("networkId") long networkId, @Query("userKey") String userKey);
 
@@ -61,6 +65,7 @@ public interface AdzerkService {
      * <p/>
      * Example: GET http://engine.adzerk.net/udb/{networkId}/interest/i.gif?userKey=<user-key>&interest=<interest>
      */
+    @Operation("SetUserInterest")
     @GET("/udb/{networkId}/interest/i.gif")
     Call<Void> setUserInterest(@Path("networkId") long networkId, @Query("userKey") String userKey, @Query("interest") String interest);
 
@@ -70,6 +75,7 @@ public interface AdzerkService {
      * <p/>
      * Example: GET http://engine.adzerk.net/udb/{networkid}/optout/i.gif?userKey=<user-key>
      */
+    @Operation("SetUserOptout")
     @GET("/udb/{networkId}/optout/i.gif")
     Call<Void> setUserOptout(@Path("networkId") long networkId, @Query("userKey") String userKey);
 
@@ -78,6 +84,7 @@ public interface AdzerkService {
      * <p/>
      * Example: GET http://engine.adzerk.net/udb/{networkId}/rt/{brandId}/{segment}/i.gif?userKey=<user-key>
      */
+    @Operation("SetUserRetargeting")
     @GET("/udb/{networkId}/rt/{brandId}/{segment}/i.gif")
     Call<Void> setUserRetargeting(@Path("networkId") long networkId,
                               @Path("brandId") long brandId,
@@ -92,6 +99,7 @@ public interface AdzerkService {
      * @param grossMerchandiseValue how much the purchased item cost
      * @return
      */
+    @Operation("FirePixel")
     @GET
     Call<Void> firePixel(@Url String url,
                              @Query("override") Float revenueOverride,
@@ -1,5 +1,7 @@
 package com.adzerk.android.sdk.rest;
 
+import com.adzerk.android.sdk.gson.Versioned;
+
 /**
  * Sets data consent preferences.
  *
@@ -7,11 +9,13 @@ package com.adzerk.android.sdk.rest;
  *
  * @see Decision
  */
-public class Consent {
+public class Consent implements Versioned {
 
     // consent for tracking in the EU
     boolean gdpr = false;
 
+    transient int modCount;
+
     public Consent(boolean gdpr) {
         this.gdpr = gdpr;
     }
@@ -22,5 +26,17 @@ public class Consent {
 
     public void setGdpr(boolean gdpr) {
         this.gdpr = gdpr;
+        modCount++;
+    }
+
+    /**
+     * Returns a number that changes whenever the consent is changed. Used to reuse the JSON of a consent that is
+     * sent again unchanged.
+     *
+     * @return version of the consent
+     */
+    @Override
+    public int getVersion() {
+        return modCount;
     }
 }
@@ -175,7 +175,7 @@ public class Content {
 
     public JsonObject getCreativeMetadataAsJson() {
         if (contentData != null) {
-            return contentData.creativeMetadataJson;
+            return contentData.getCreativeMetadataAsJson();
         }
         return null;
     }
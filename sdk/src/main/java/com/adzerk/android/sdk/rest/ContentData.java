@@ -1,12 +1,21 @@
 package com.adzerk.android.sdk.rest;
 
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.reflect.TypeToken;
 
+import java.lang.reflect.Type;
 import java.util.Collections;
 import java.util.Map;
 
 /**
  * Contains the data and metadata parsed from a Content element. Not intended for API consumers.
+ * <p>
+ * The parsed 'data' JSON object is kept as the only representation of the creative. The creative data map is
+ * built from it on first access, and the creative metadata is read from the same map and JSON object, so
+ * decisions that are never rendered don't pay for the conversion. The map is built under a lock, since a Content may
+ * be read from several threads, and the JSON object is dropped once the map replaces it.
  * @see Content
  */
 public class ContentData {
@@ -20,11 +29,15 @@ public class ContentData {
     // data key for title
     static String KEY_TITLE = "title";
 
-    // map of creative data (title, height, width, etc) used to build the content body
-    Map<String, Object> creativeData;
+    private static final Gson GSON = new Gson();
 
-    // map of creative metadata; the deserialized JSON metadata from the creative
-    Map<String, Object> creativeMetadata;
+    private static final Type CREATIVE_DATA_TYPE = new TypeToken<Map<String, Object>>() {}.getType();
+
+    // the 'data' JSON object of the content; source of the creative data until the map is built, then null
+    JsonObject dataJson;
+
+    // map of creative data (title, height, width, etc) used to build the content body; built on first access
+    volatile Map<String, Object> creativeData;
 
     // raw creative metadata JSON object; useful for clients needing custom deserialization
     JsonObject creativeMetadataJson;
@@ -35,12 +48,33 @@ public class ContentData {
         this.creativeMetadataJson = creativeMetadataJson;
     }
 
+    /**
+     * Creates ContentData that converts the given 'data' JSON object only when it is accessed.
+     * @param dataJson the 'data' element of a Content
+     */
+    public ContentData(JsonObject dataJson) {
+        this.dataJson = dataJson;
+        JsonElement customData = dataJson.get(KEY_CUSTOM_DATA);
+        if (customData != null && customData.isJsonObject()) {
+            this.creativeMetadataJson = customData.getAsJsonObject();
+        }
+    }
+
     /**
      * Returns TRUE if content contains creativeData
      * @return true if creativeData is not empty
      */
     boolean hasCreativeData() {
-        return creativeData != null && !creativeData.isEmpty();
+        Map<String, Object> data = creativeData;
+        if (data == null) {
+            synchronized (this) {
+                if (creativeData == null && dataJson != null) {
+                    return dataJson.size() > 0;
+                }
+                data = creativeData;
+            }
+        }
+        return data != null && !data.isEmpty();
     }
 
     /**
@@ -48,7 +82,18 @@ public class ContentData {
      * @return map of key-value pairs
      */
     Map<String, Object> getCreativeData() {
-        return creativeData;
+        Map<String, Object> data = creativeData;
+        if (data == null) {
+            synchronized (this) {
+                data = creativeData;
+                if (data == null && dataJson != null) {
+                    data = GSON.fromJson(dataJson, CREATIVE_DATA_TYPE);
+                    creativeData = data;
+                    dataJson = null;
+                }
+            }
+        }
+        return data;
     }
 
     /**
@@ -56,8 +101,8 @@ public class ContentData {
      * @return map of key-value pairs
      */
     Object getCreativeData(String key) {
-        if (hasCreativeData() && creativeData.containsKey(key)) {
-            return creativeData.get(key);
+        if (hasCreativeData() && getCreativeData().containsKey(key)) {
+            return getCreativeData().get(key);
         }
         return null;
     }
@@ -72,8 +117,8 @@ public class ContentData {
      */
     Map<String, Object> getCreativeMetadata() {
 
-        if (hasCreativeData() && creativeData.containsKey(KEY_CUSTOM_DATA)) {
-            Object creativeMetadata = creativeData.get(KEY_CUSTOM_DATA);
+        if (hasCreativeData() && getCreativeData().containsKey(KEY_CUSTOM_DATA)) {
+            Object creativeMetadata = getCreativeData().get(KEY_CUSTOM_DATA);
             if (creativeMetadata instanceof Map) {
                 return (Map) creativeMetadata;
             }
@@ -118,7 +163,8 @@ public class ContentData {
      * @return url of image or null
      */
     String getImageUrl() {
-        return (getCreativeData(KEY_IMAGE_URL) != null) ? creativeData.get(KEY_IMAGE_URL).toString() : null;
+        Object imageUrl = getCreativeData(KEY_IMAGE_URL);
+        return imageUrl != null ? imageUrl.toString() : null;
     }
 
     /**
@@ -126,7 +172,8 @@ public class ContentData {
      * @return ad title or null
      */
     String getTitle() {
-        return (getCreativeData(KEY_TITLE) != null) ? creativeData.get(KEY_TITLE).toString() : null;
+        Object title = getCreativeData(KEY_TITLE);
+        return title != null ? title.toString() : null;
     }
 
 }
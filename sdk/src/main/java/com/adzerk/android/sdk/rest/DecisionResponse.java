@@ -1,8 +1,10 @@
 package com.adzerk.android.sdk.rest;
 
-import com.adzerk.android.sdk.gson.DecisionsDeserializer;
+import com.adzerk.android.sdk.gson.DecisionsTypeAdapterFactory;
 import com.google.gson.annotations.JsonAdapter;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -18,9 +20,22 @@ public class DecisionResponse {
     User user;
 
     // each Decision represents an ad that was selected to be served for a given Placement
-    @JsonAdapter(DecisionsDeserializer.class)
+    @JsonAdapter(DecisionsTypeAdapterFactory.class)
     Map<String, List<Decision>> decisions;
 
+    public DecisionResponse() {
+    }
+
+    /**
+     * Creates a DecisionResponse from decisions that were received earlier, e.g. prefetched decisions
+     * @param user user that placed the request
+     * @param decisions map of selected decisions by placement name
+     */
+    public DecisionResponse(User user, Map<String, List<Decision>> decisions) {
+        this.user = user;
+        this.decisions = decisions;
+    }
+
     /**
      * Returns the User key which uniquely identifies the user that places the requestPlacement
      * @return user key
@@ -45,4 +60,22 @@ public class DecisionResponse {
         return decisions.get(name);
     }
 
+    /**
+     * Returns a DecisionResponse holding only the decisions for the given Placement names
+     * @param names placement names to keep
+     * @return decision response for the specified placement names
+     */
+    public DecisionResponse forPlacements(Collection<String> names) {
+        if (decisions == null) {
+            return new DecisionResponse(user, null);
+        }
+        Map<String, List<Decision>> selected = new HashMap<>();
+        for (String name : names) {
+            if (decisions.containsKey(name)) {
+                selected.put(name, decisions.get(name));
+            }
+        }
+        return new DecisionResponse(user, selected);
+    }
+
 }
@@ -0,0 +1,314 @@
+package com.adzerk.android.sdk.rest;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.adzerk.android.sdk.gson.IntSetTypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Set of ints kept in a primitive array, used for the id sets of {@link Placement} and {@link Request}.
+ * <p>
+ * Ids are stored without boxing or a hash node per entry, and are iterated and serialized in the order they were
+ * added. Small sets are searched linearly; larger ones, such as long lists of blocked creatives, add an open
+ * addressing index of positions so that lookups stay constant time.
+ */
+@JsonAdapter(IntSetTypeAdapter.class)
+public final class IntSet extends AbstractSet<Integer> {
+
+    private static final int[] EMPTY = new int[0];
+
+    // sets up to this size are searched without an index
+    static final int MAX_LINEAR_SIZE = 8;
+
+    private int[] values;
+    private int size;
+
+    // open addressing table of positions + 1, 0 for a free slot; null while the set is small
+    private int[] index;
+
+    // set shared by placement templates, see readOnlyCopy()
+    private boolean readOnly;
+
+    // number of changes, part of the version of a placement
+    private int modCount;
+
+    public IntSet() {
+        this.values = EMPTY;
+    }
+
+    public IntSet(int capacity) {
+        this.values = capacity > 0 ? new int[capacity] : EMPTY;
+    }
+
+    /**
+     * Creates a set holding the given ids.
+     *
+     * @param values ids, duplicates are ignored
+     * @return new set
+     */
+    public static IntSet of(int... values) {
+        IntSet set = new IntSet(values.length);
+        set.addAll(values);
+        return set;
+    }
+
+    /**
+     * Creates a set holding the ids of the given collection.
+     *
+     * @param values ids, must not contain null
+     * @return new set
+     */
+    public static IntSet copyOf(Collection<Integer> values) {
+        IntSet set = new IntSet(values.size());
+        set.addAll(values);
+        return set;
+    }
+
+    // Keeps a set passed to a setter as is when it already is an IntSet, so that later changes to it still apply
+    @Nullable
+    static IntSet toIntSet(@Nullable Collection<Integer> values) {
+        if (values == null || values instanceof IntSet) {
+            return (IntSet) values;
+        }
+        return copyOf(values);
+    }
+
+    // Copy that can be shared between threads; changing it throws UnsupportedOperationException
+    IntSet readOnlyCopy() {
+        IntSet copy = copyOf(this);
+        copy.readOnly = true;
+        return copy;
+    }
+
+    boolean isReadOnly() {
+        return readOnly;
+    }
+
+    static int getModCount(@Nullable IntSet set) {
+        return set != null ? set.modCount : 0;
+    }
+
+    public boolean contains(int value) {
+        return indexOf(value) >= 0;
+    }
+
+    public boolean add(int value) {
+        checkWritable();
+        if (indexOf(value) >= 0) {
+            return false;
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.max(4, size * 2));
+        }
+        values[size++] = value;
+        modCount++;
+        if (index != null && size * 2 <= index.length) {
+            insertIndex(size - 1);
+        } else if (size > MAX_LINEAR_SIZE) {
+            rebuildIndex();
+        }
+        return true;
+    }
+
+    /**
+     * Adds the given ids.
+     *
+     * @param values ids, duplicates are ignored
+     * @return true if the set changed
+     */
+    public boolean addAll(int... values) {
+        int oldSize = size;
+        for (int value : values) {
+            add(value);
+        }
+        return size != oldSize;
+    }
+
+    public boolean remove(int value) {
+        checkWritable();
+        int position = indexOf(value);
+        if (position < 0) {
+            return false;
+        }
+        removeAt(position);
+        return true;
+    }
+
+    /**
+     * Returns the id at the given position in the order ids were added.
+     *
+     * @param index position, from 0 to size - 1
+     * @return id
+     */
+    public int valueAt(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+        return values[index];
+    }
+
+    /**
+     * Returns the ids in the order they were added.
+     *
+     * @return new array of ids
+     */
+    public int[] toIntArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Integer && contains(((Integer) o).intValue());
+    }
+
+    @Override
+    public boolean add(Integer value) {
+        return add(value.intValue());
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Integer> collection) {
+        int oldSize = size;
+        if (collection instanceof IntSet) {
+            IntSet other = (IntSet) collection;
+            for (int i = 0; i < other.size; i++) {
+                add(other.values[i]);
+            }
+        } else {
+            for (Integer value : collection) {
+                add(value.intValue());
+            }
+        }
+        return size != oldSize;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return o instanceof Integer && remove(((Integer) o).intValue());
+    }
+
+    @Override
+    public void clear() {
+        checkWritable();
+        size = 0;
+        index = null;
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int hashCode() {
+        // same as for a set of Integers
+        int hash = 0;
+        for (int i = 0; i < size; i++) {
+            hash += values[i];
+        }
+        return hash;
+    }
+
+    @NonNull
+    @Override
+    public Iterator<Integer> iterator() {
+        return new Iterator<Integer>() {
+            int next;
+            int last = -1;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Integer next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                last = next++;
+                return values[last];
+            }
+
+            @Override
+            public void remove() {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                checkWritable();
+                removeAt(last);
+                next = last;
+                last = -1;
+            }
+        };
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Ids of a placement template can not be changed");
+        }
+    }
+
+    private int indexOf(int value) {
+        if (index == null) {
+            for (int i = 0; i < size; i++) {
+                if (values[i] == value) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        int mask = index.length - 1;
+        for (int slot = hash(value) & mask; index[slot] != 0; slot = (slot + 1) & mask) {
+            if (values[index[slot] - 1] == value) {
+                return index[slot] - 1;
+            }
+        }
+        return -1;
+    }
+
+    // Positions after a removed id shift, so the index is rebuilt; removals are rare for id sets
+    private void removeAt(int position) {
+        System.arraycopy(values, position + 1, values, position, size - position - 1);
+        size--;
+        modCount++;
+        if (index != null) {
+            rebuildIndex();
+        }
+    }
+
+    private void rebuildIndex() {
+        if (size <= MAX_LINEAR_SIZE) {
+            index = null;
+            return;
+        }
+        // keep the table at most half full
+        index = new int[Integer.highestOneBit(size * 4 - 1)];
+        for (int i = 0; i < size; i++) {
+            insertIndex(i);
+        }
+    }
+
+    private void insertIndex(int position) {
+        int mask = index.length - 1;
+        int slot = hash(values[position]) & mask;
+        while (index[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = position + 1;
+    }
+
+    private static int hash(int value) {
+        // spread sequential ids across the table
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
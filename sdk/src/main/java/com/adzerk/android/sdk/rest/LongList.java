@@ -0,0 +1,113 @@
+package com.adzerk.android.sdk.rest;
+
+import com.adzerk.android.sdk.gson.LongListTypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * List of longs kept in a primitive array, used for the view timestamps of flight view times.
+ */
+@JsonAdapter(LongListTypeAdapter.class)
+public final class LongList extends AbstractList<Long> implements RandomAccess {
+
+    private static final long[] EMPTY = new long[0];
+
+    private long[] values;
+    private int size;
+
+    public LongList() {
+        this.values = EMPTY;
+    }
+
+    public LongList(int capacity) {
+        this.values = capacity > 0 ? new long[capacity] : EMPTY;
+    }
+
+    /**
+     * Creates a list holding a copy of the given values.
+     *
+     * @param values list values
+     * @return new list
+     */
+    public static LongList of(long... values) {
+        LongList list = new LongList();
+        list.values = Arrays.copyOf(values, values.length);
+        list.size = values.length;
+        return list;
+    }
+
+    public long getLong(int index) {
+        checkIndex(index);
+        return values[index];
+    }
+
+    public void addLong(long value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.max(4, size * 2));
+        }
+        values[size++] = value;
+        modCount++;
+    }
+
+    /**
+     * Returns the values in list order.
+     *
+     * @return new array of values
+     */
+    public long[] toLongArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    @Override
+    public Long get(int index) {
+        return getLong(index);
+    }
+
+    @Override
+    public Long set(int index, Long value) {
+        checkIndex(index);
+        long previous = values[index];
+        values[index] = value;
+        return previous;
+    }
+
+    @Override
+    public void add(int index, Long value) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+        addLong(value);
+        System.arraycopy(values, index, values, index + 1, size - 1 - index);
+        values[index] = value;
+    }
+
+    @Override
+    public Long remove(int index) {
+        checkIndex(index);
+        long removed = values[index];
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.adzerk.android.sdk.rest;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Names the SDK operation performed by an {@link AdzerkService} method. The name tags the call metrics reported
+ * to a {@link com.adzerk.android.sdk.AdzerkSdk.MetricsListener}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Operation {
+    String value();
+}
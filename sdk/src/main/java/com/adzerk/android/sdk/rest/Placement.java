@@ -4,10 +4,11 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.adzerk.android.sdk.gson.FlattenAdditionalOptions;
+import com.adzerk.android.sdk.gson.Versioned;
 import com.google.gson.JsonElement;
 
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
@@ -29,7 +30,7 @@ import java.util.Set;
  *
  */
 @FlattenAdditionalOptions(fieldName = "additionalOptions")
-public class Placement {
+public class Placement implements Versioned {
 
     // unique name for the placement (required)
     String divName;
@@ -41,10 +42,10 @@ public class Placement {
     long siteId;
 
     // one or more integer ad types to use when selecting an ad (required)
-    Set<Integer> adTypes;
+    IntSet adTypes;
 
     // zero or more zone ids to use when selecting an ad
-    Set<Integer> zoneIds;
+    IntSet zoneIds;
 
     // campaign id; if specified, only consider ads in that campaign
     Integer campaignId;
@@ -62,7 +63,7 @@ public class Placement {
     Map<String, Object> properties;
 
     // array of numeric event types. Requests tracking URLs for custom events
-    Set<Integer> eventIds;
+    IntSet eventIds;
 
     // maximum number of winners (selections) that can be included in the placement
     Integer count;
@@ -70,7 +71,13 @@ public class Placement {
     // options to be added to the Placement
     public AdditionalOptions additionalOptions;
 
-    transient AdditionalOptions.Builder additionalOptionsBuilder = new AdditionalOptions.Builder();
+    transient AdditionalOptions.Builder additionalOptionsBuilder;
+
+    // template this placement was created from, whose values it shares until they are changed
+    transient PlacementTemplate template;
+
+    // number of changes made through setters and adders, see getVersion()
+    transient int modCount;
 
     /**
      * Creates a Placement with all required fields. A Placement identifies a place where an ad can be served
@@ -133,6 +140,60 @@ public class Placement {
         addAdTypes(adTypes);
     }
 
+    // Copy of a template's prototype, sharing its read-only ids, properties and additional options
+    Placement(Placement prototype, @Nullable PlacementTemplate template) {
+        this.divName = prototype.divName;
+        this.networkId = prototype.networkId;
+        this.siteId = prototype.siteId;
+        this.adTypes = prototype.adTypes;
+        this.zoneIds = prototype.zoneIds;
+        this.campaignId = prototype.campaignId;
+        this.flightId = prototype.flightId;
+        this.adId = prototype.adId;
+        this.clickUrl = prototype.clickUrl;
+        this.properties = prototype.properties;
+        this.eventIds = prototype.eventIds;
+        this.count = prototype.count;
+        this.additionalOptions = prototype.additionalOptions;
+        this.template = template;
+    }
+
+    // Copy whose ids, properties and additional options can not be changed and are safe to share between threads
+    Placement readOnlyCopy() {
+        Placement copy = new Placement(this, null);
+        copy.adTypes = adTypes != null ? adTypes.readOnlyCopy() : null;
+        copy.zoneIds = zoneIds != null ? zoneIds.readOnlyCopy() : null;
+        copy.eventIds = eventIds != null ? eventIds.readOnlyCopy() : null;
+        copy.properties = properties != null
+                ? Collections.unmodifiableMap(new HashMap<>(properties))
+                : null;
+        if (additionalOptions != null && additionalOptions.getAll() != null) {
+            copy.additionalOptions = copyOptions(additionalOptions).build();
+        }
+        return copy;
+    }
+
+    /**
+     * Returns a number that changes whenever this placement is changed through its setters and adders, or its ids
+     * are changed. Used to reuse the JSON of a placement that is sent again unchanged.
+     *
+     * @return version of the placement
+     */
+    @Override
+    public int getVersion() {
+        return modCount + IntSet.getModCount(adTypes) + IntSet.getModCount(zoneIds) + IntSet.getModCount(eventIds);
+    }
+
+    /**
+     * Returns the template this placement was created from.
+     *
+     * @return placement template, or null
+     */
+    @Nullable
+    public PlacementTemplate getTemplate() {
+        return template;
+    }
+
     /**
      * Returns the unique name for the placement
      *
@@ -149,6 +210,7 @@ public class Placement {
      */
     public void setDivName(String divName) {
         this.divName = divName;
+        modCount++;
     }
 
     /**
@@ -167,6 +229,7 @@ public class Placement {
      */
     public void setNetworkId(long networkId) {
         this.networkId = networkId;
+        modCount++;
     }
 
     /**
@@ -185,6 +248,7 @@ public class Placement {
      */
     public void setSiteId(long siteId) {
         this.siteId = siteId;
+        modCount++;
     }
 
     /**
@@ -203,11 +267,9 @@ public class Placement {
      */
     private void addAdTypes(int... adTypes) {
         if (this.adTypes == null) {
-            this.adTypes = new HashSet<>();
-        }
-        for (int adType : adTypes ) {
-            this.adTypes.add(adType);
+            this.adTypes = new IntSet(adTypes.length);
         }
+        this.adTypes.addAll(adTypes);
     }
 
     /**
@@ -225,7 +287,9 @@ public class Placement {
      * @return
      */
     public Placement setZoneIds(@Nullable Set<Integer> zoneIds) {
-        this.zoneIds = zoneIds;
+        // keeps the version growing although the new set may have fewer changes
+        modCount += IntSet.getModCount(this.zoneIds) + 1;
+        this.zoneIds = IntSet.toIntSet(zoneIds);
         return this;
     }
 
@@ -236,11 +300,12 @@ public class Placement {
      */
     public Placement addZoneIds(int... zoneIds) {
         if (this.zoneIds == null) {
-            this.zoneIds = new HashSet<>();
-        }
-        for (int zoneId : zoneIds) {
-            this.zoneIds.add(zoneId);
+            this.zoneIds = new IntSet(zoneIds.length);
+        } else if (this.zoneIds.isReadOnly()) {
+            this.zoneIds = IntSet.copyOf(this.zoneIds);
         }
+        this.zoneIds.addAll(zoneIds);
+        modCount++;
         return this;
     }
 
@@ -261,6 +326,7 @@ public class Placement {
      */
     public Placement setCampaignId(int campaignId) {
         this.campaignId = campaignId;
+        modCount++;
         return this;
     }
 
@@ -281,6 +347,7 @@ public class Placement {
      */
     public Placement setFlightId(int flightId) {
         this.flightId = flightId;
+        modCount++;
         return this;
     }
 
@@ -301,6 +368,7 @@ public class Placement {
      */
     public Placement setAdId(int adId) {
         this.adId = adId;
+        modCount++;
         return this;
     }
 
@@ -321,6 +389,7 @@ public class Placement {
      */
     public Placement setClickUrl(String clickUrl) {
         this.clickUrl = clickUrl;
+        modCount++;
         return this;
     }
 
@@ -341,6 +410,7 @@ public class Placement {
      */
     public Placement setProperties(Map<String, Object> properties) {
         this.properties = properties;
+        modCount++;
         return this;
     }
 
@@ -354,8 +424,11 @@ public class Placement {
     public Placement addProperty(String key, Object value) {
         if (properties == null) {
             properties = new HashMap<>();
+        } else if (template != null && properties == template.prototype.properties) {
+            properties = new HashMap<>(properties);
         }
         properties.put(key, value);
+        modCount++;
         return this;
     }
 
@@ -377,7 +450,9 @@ public class Placement {
      * @return the placement
      */
     public Placement setEventIds(Set<Integer> eventIds) {
-        this.eventIds = eventIds;
+        // keeps the version growing although the new set may have fewer changes
+        modCount += IntSet.getModCount(this.eventIds) + 1;
+        this.eventIds = IntSet.toIntSet(eventIds);
         return this;
     }
 
@@ -390,21 +465,22 @@ public class Placement {
      */
     public Placement addEventIds(int... eventIds) {
         if (this.eventIds == null) {
-            this.eventIds = new HashSet<>();
-        }
-        for (int eventId : eventIds) {
-            this.eventIds.add(eventId);
+            this.eventIds = new IntSet(eventIds.length);
+        } else if (this.eventIds.isReadOnly()) {
+            this.eventIds = IntSet.copyOf(this.eventIds);
         }
+        this.eventIds.addAll(eventIds);
+        modCount++;
         return this;
     }
 
     /**
      * Returns the maximum number of winners requested per Placement
      *
-     *  @return number of ads requested
+     *  @return number of ads requested, or 0 if no count was set
      */
     public int getCount() {
-        return count;
+        return count != null ? count : 0;
     }
 
     /**
@@ -414,6 +490,7 @@ public class Placement {
      **/
     public Placement setCount(int count) {
         this.count = count;
+        modCount++;
         return  this;
     }
 
@@ -425,7 +502,8 @@ public class Placement {
      * @return placement
      */
     public Placement addAdditionalOption(String key, String value) {
-        additionalOptions = additionalOptionsBuilder.add(key, value).build();
+        additionalOptions = optionsBuilder().add(key, value).build();
+        modCount++;
         return this;
     }
 
@@ -437,7 +515,8 @@ public class Placement {
      * @return placement
      */
     public Placement addAdditionalOption(String key, Number value) {
-        additionalOptions = additionalOptionsBuilder.add(key, value).build();
+        additionalOptions = optionsBuilder().add(key, value).build();
+        modCount++;
         return this;
     }
 
@@ -449,7 +528,8 @@ public class Placement {
      * @return placement
      */
     public Placement addAdditionalOption(String key, Boolean value) {
-        additionalOptions = additionalOptionsBuilder.add(key, value).build();
+        additionalOptions = optionsBuilder().add(key, value).build();
+        modCount++;
         return this;
     }
 
@@ -461,7 +541,8 @@ public class Placement {
      * @return placement
      */
     public Placement addAdditionalOption(String key, String[] values) {
-        additionalOptions = additionalOptionsBuilder.add(key, values).build();
+        additionalOptions = optionsBuilder().add(key, values).build();
+        modCount++;
         return this;
     }
 
@@ -473,7 +554,8 @@ public class Placement {
      * @return placement
      */
     public Placement addAdditionalOption(String key, Number[] values) {
-        additionalOptions = additionalOptionsBuilder.add(key, values).build();
+        additionalOptions = optionsBuilder().add(key, values).build();
+        modCount++;
         return this;
     }
 
@@ -485,7 +567,8 @@ public class Placement {
      * @return placement
      */
     public Placement addAdditionalOption(String key, Boolean[] values) {
-        additionalOptions = additionalOptionsBuilder.add(key, values).build();
+        additionalOptions = optionsBuilder().add(key, values).build();
+        modCount++;
         return this;
     }
 
@@ -497,7 +580,8 @@ public class Placement {
      * @return placement
      */
     public Placement addAdditionalOption(String key, JsonElement value) {
-        additionalOptions = additionalOptionsBuilder.add(key, value).build();
+        additionalOptions = optionsBuilder().add(key, value).build();
+        modCount++;
         return this;
     }
 
@@ -509,7 +593,8 @@ public class Placement {
      * @return placement
      */
     public Placement addAdditionalOption(String key, Object value) {
-        additionalOptions = additionalOptionsBuilder.add(key, value).build();
+        additionalOptions = optionsBuilder().add(key, value).build();
+        modCount++;
         return this;
     }
 
@@ -521,7 +606,8 @@ public class Placement {
      * @return placement
      */
     public Placement addAdditionalOption(String key, Object[] values) {
-        additionalOptions = additionalOptionsBuilder.add(key, values).build();
+        additionalOptions = optionsBuilder().add(key, values).build();
+        modCount++;
         return this;
     }
 
@@ -533,4 +619,22 @@ public class Placement {
     public AdditionalOptions getAdditionalOptions() {
         return additionalOptions;
     }
+
+    // A placement created from a template starts from the template's options, which must stay unchanged
+    private AdditionalOptions.Builder optionsBuilder() {
+        if (additionalOptionsBuilder == null) {
+            additionalOptionsBuilder = additionalOptions != null && additionalOptions.getAll() != null
+                    ? copyOptions(additionalOptions)
+                    : new AdditionalOptions.Builder();
+        }
+        return additionalOptionsBuilder;
+    }
+
+    private static AdditionalOptions.Builder copyOptions(AdditionalOptions additionalOptions) {
+        AdditionalOptions.Builder builder = new AdditionalOptions.Builder();
+        for (Map.Entry<String, JsonElement> option : additionalOptions.getAll().entrySet()) {
+            builder.add(option.getKey(), option.getValue());
+        }
+        return builder;
+    }
 }
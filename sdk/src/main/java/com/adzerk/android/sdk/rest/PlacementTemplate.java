@@ -0,0 +1,101 @@
+package com.adzerk.android.sdk.rest;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.adzerk.android.sdk.gson.FieldJsonCache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable template of a {@link Placement} for an ad slot that is requested again and again.
+ * <p>
+ * A template is taken from a fully configured Placement and can be shared between threads. Each call to
+ * {@link #newPlacement()} returns a new Placement for one Request that shares the template's ad types, zone ids,
+ * event ids, properties and additional options instead of copying them, and only copies a shared value when the
+ * Placement changes it. The JSON of the shared values is written once and reused for every Request.
+ * <p>
+ * <pre>
+ * {@code
+ * // once, e.g. when the screen is created
+ * PlacementTemplate banner = PlacementTemplate.of(new Placement("banner", siteId, 5)
+ *     .addZoneIds(10, 11)
+ *     .addProperty("section", "sports"));
+ *
+ * // for every request
+ * Request request = new Request.Builder()
+ *     .addPlacement(banner.newPlacement().setCount(2))
+ *     .build();
+ * }
+ * </pre>
+ * The values of the properties must not be changed after the template is created.
+ */
+public final class PlacementTemplate implements FieldJsonCache {
+
+    final Placement prototype;
+
+    // shared values by serialized field name, and their JSON once written
+    private final Map<String, Object> sharedValues = new HashMap<>();
+    private final Map<String, String> jsonCache = new ConcurrentHashMap<>();
+
+    private PlacementTemplate(Placement placement) {
+        this.prototype = placement.readOnlyCopy();
+        share("adTypes", prototype.adTypes);
+        share("zoneIds", prototype.zoneIds);
+        share("eventIds", prototype.eventIds);
+        share("properties", prototype.properties);
+    }
+
+    /**
+     * Creates a template with the current state of the given placement. Later changes to the placement do not
+     * affect the template.
+     *
+     * @param placement configured placement
+     * @return placement template
+     */
+    public static PlacementTemplate of(@NonNull Placement placement) {
+        return new PlacementTemplate(placement);
+    }
+
+    /**
+     * Returns a new Placement for one Request, initialized from this template.
+     *
+     * @return placement
+     */
+    public Placement newPlacement() {
+        return new Placement(prototype, this);
+    }
+
+    /**
+     * Returns the unique name of the placements created from this template.
+     *
+     * @return name to identify the placement in a Request
+     */
+    public String getDivName() {
+        return prototype.divName;
+    }
+
+    @Override
+    public boolean isShared(String fieldName, Object fieldValue) {
+        return fieldValue != null && sharedValues.get(fieldName) == fieldValue;
+    }
+
+    @Nullable
+    @Override
+    public String getJson(String fieldName) {
+        return jsonCache.get(fieldName);
+    }
+
+    @Override
+    public void putJson(String fieldName, String json) {
+        jsonCache.put(fieldName, json);
+    }
+
+    private void share(String fieldName, @Nullable Object value) {
+        if (value != null) {
+            sharedValues.put(fieldName, value);
+        }
+    }
+}
@@ -60,7 +60,7 @@ public class Request {
     String ip;
 
     // zero or more numeric creative ids to disregard when selecting an ad
-    Set<Integer> blockedCreatives;
+    IntSet blockedCreatives;
 
     // hash of flight ids to arrays of UNIX epoch timestamps representing times the user viewed an ad in the specified flight (used for frequency capping)
     Map<Integer, List<Long>> flightViewTimes;
@@ -102,7 +102,7 @@ public class Request {
         private String referrer;
         private String url;
         private String ip;
-        private Set<Integer> blockedCreatives;
+        private IntSet blockedCreatives;
         private Map<Integer, List<Long>> flightViewTimes;
         private Consent consent;
         private boolean enableBotFiltering = false;
@@ -251,7 +251,7 @@ public class Request {
          * @return request builder
          */
         public Builder setBlockedCreatives(Set<Integer> blockedCreatives) {
-            this.blockedCreatives = blockedCreatives;
+            this.blockedCreatives = IntSet.toIntSet(blockedCreatives);
             return this;
         }
 
@@ -263,11 +263,9 @@ public class Request {
          */
         public Builder addBlockedCreatives(int... blockedCreatives) {
             if (this.blockedCreatives == null) {
-                this.blockedCreatives = new HashSet<Integer>();
-            }
-            for (int blockedCreative : blockedCreatives) {
-                this.blockedCreatives.add(blockedCreative);
+                this.blockedCreatives = new IntSet(blockedCreatives.length);
             }
+            this.blockedCreatives.addAll(blockedCreatives);
 
             return this;
         }
@@ -282,15 +280,10 @@ public class Request {
          * @return request builder
          */
         public Builder setFlightViewTimes(int flightId, long... flightViewTimes) {
-            List<Long> flightViewTimesList =  new ArrayList<Long>();
-            for (long flightViewTime : flightViewTimes ) {
-                flightViewTimesList.add(flightViewTime);
-            }
-
             if (this.flightViewTimes == null) {
                 this.flightViewTimes = new HashMap<Integer, List<Long>>();
             }
-            this.flightViewTimes.put(flightId, flightViewTimesList);
+            this.flightViewTimes.put(flightId, LongList.of(flightViewTimes));
             return this;
         }
 
@@ -460,6 +453,48 @@ public class Request {
         }
     }
 
+    // Shallow copy with different placements
+    private Request(Request request, List<Placement> placements) {
+        this.placements = new ArrayList<>(placements);
+        this.user = request.user;
+        this.keywords = request.keywords;
+        this.referrer = request.referrer;
+        this.url = request.url;
+        this.ip = request.ip;
+        this.blockedCreatives = request.blockedCreatives;
+        this.flightViewTimes = request.flightViewTimes;
+        this.consent = request.consent;
+        this.enableBotFiltering = request.enableBotFiltering;
+        this.additionalOptions = request.additionalOptions;
+    }
+
+    /**
+     * Returns a copy of this Request for the given placements. All other properties are shared with this Request.
+     *
+     * @param placements placements of the new request
+     * @return ad request
+     */
+    public Request withPlacements(@NonNull List<Placement> placements) {
+        if (placements.isEmpty()) {
+            throw new IllegalArgumentException("At least one Placement must be specified");
+        }
+        return new Request(this, placements);
+    }
+
+    /**
+     * Returns a copy of this Request with the given flight view times. All other properties are shared with this
+     * Request.
+     *
+     * @param flightViewTimes map of flight ids to UNIX epoch timestamps of the times the user viewed an ad in each
+     *                        flight
+     * @return ad request
+     */
+    public Request withFlightViewTimes(Map<Integer, List<Long>> flightViewTimes) {
+        Request copy = new Request(this, placements);
+        copy.flightViewTimes = flightViewTimes;
+        return copy;
+    }
+
     /**
      * Returns list of placements where an ad can be served
      *
@@ -547,7 +582,7 @@ public class Request {
         return blockedCreatives;
     }
 
-    private void setBlockedCreatives(Set<Integer> blockedCreatives) {
+    private void setBlockedCreatives(IntSet blockedCreatives) {
         this.blockedCreatives = blockedCreatives;
     }
 
@@ -1,5 +1,6 @@
 package com.adzerk.android.sdk.rest;
 
+import com.adzerk.android.sdk.gson.Versioned;
 import com.google.gson.JsonObject;
 import com.google.gson.annotations.SerializedName;
 
@@ -16,7 +17,7 @@ import java.util.Map;
  * Not supported:
  * - pendingConversions, partnerUserIds, retargettingSegments, cookieMonster, dirtyCookies
  */
-public class User  {
+public class User implements Versioned {
 
     String key;
 
@@ -62,6 +63,17 @@ public class User  {
         this.consent = consent;
     }
 
+    /**
+     * Returns a number that changes whenever the consent of the user is changed; a user can not be changed otherwise.
+     * Used to reuse the JSON of a user that is sent again unchanged.
+     *
+     * @return version of the user
+     */
+    @Override
+    public int getVersion() {
+        return consent != null ? consent.getVersion() : 0;
+    }
+
     /**
      * Returns the key that identifies the user placing a {@link Request}
      * @return user key
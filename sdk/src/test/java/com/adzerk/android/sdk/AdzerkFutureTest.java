@@ -0,0 +1,139 @@
+package com.adzerk.android.sdk;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import retrofit2.Call;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk=25, constants=BuildConfig.class)
+public class AdzerkFutureTest {
+
+    @Mock Call<String> call;
+    @Mock AdzerkFuture.Listener<Object> listener;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    @Test
+    public void itShouldNotifyListenersOnCompletion() throws Exception {
+        AdzerkFuture<String> future = new AdzerkFuture<>();
+        future.addListener(listener);
+        future.complete("result");
+
+        verify(listener).success("result");
+        assertThat(future.isDone()).isTrue();
+        assertThat(future.get()).isEqualTo("result");
+    }
+
+    @Test
+    public void itShouldNotifyListenerAddedAfterCompletion() {
+        AdzerkFuture<String> future = new AdzerkFuture<>();
+        future.complete("result");
+        future.addListener(listener);
+
+        verify(listener).success("result");
+    }
+
+    @Test
+    public void itShouldThrowExecutionExceptionOnFailure() throws InterruptedException {
+        AdzerkFuture<String> future = new AdzerkFuture<>();
+        IOException cause = new IOException("timeout");
+        future.fail(new AdzerkSdk.AdzerkError(cause));
+
+        try {
+            future.get();
+            fail("expected ExecutionException");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isSameAs(cause);
+        }
+    }
+
+    @Test
+    public void itShouldTimeOutWhilePending() throws Exception {
+        AdzerkFuture<String> future = new AdzerkFuture<>();
+        try {
+            future.get(10, TimeUnit.MILLISECONDS);
+            fail("expected TimeoutException");
+        } catch (TimeoutException e) {
+            assertThat(future.isDone()).isFalse();
+        }
+    }
+
+    @Test
+    public void itShouldCancelUnderlyingCall() throws Exception {
+        AdzerkFuture<String> future = new AdzerkFuture<>();
+        future.setCall(call);
+        future.addListener(listener);
+
+        assertThat(future.cancel(false)).isTrue();
+        verify(call).cancel();
+        verify(listener).error(any(AdzerkSdk.AdzerkError.class));
+        assertThat(future.isCancelled()).isTrue();
+        assertThat(future.complete("late")).isFalse();
+
+        try {
+            future.get();
+            fail("expected CancellationException");
+        } catch (CancellationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void itShouldCancelCallSetAfterCancellation() {
+        AdzerkFuture<String> future = new AdzerkFuture<>();
+        future.cancel(false);
+        future.setCall(call);
+
+        verify(call).cancel();
+    }
+
+    @Test
+    public void itShouldCompleteWhenAllComplete() {
+        AdzerkFuture<String> first = new AdzerkFuture<>();
+        AdzerkFuture<String> second = new AdzerkFuture<>();
+        AdzerkFuture<Void> all = AdzerkFuture.whenAll(first, second);
+        all.addListener(listener);
+
+        first.complete("first");
+        verify(listener, never()).success(null);
+
+        second.complete("second");
+        verify(listener).success(null);
+    }
+
+    @Test
+    public void itShouldFailAllOnFirstErrorAndCancelAll() {
+        AdzerkFuture<String> first = new AdzerkFuture<>();
+        AdzerkFuture<String> second = new AdzerkFuture<>();
+        AdzerkFuture<Void> all = AdzerkFuture.whenAll(first, second);
+
+        first.fail(new AdzerkSdk.AdzerkError(new IOException("failed")));
+        assertThat(all.isDone()).isTrue();
+        assertThat(second.isDone()).isFalse();
+
+        AdzerkFuture<Void> other = AdzerkFuture.whenAll(second);
+        other.cancel(false);
+        assertThat(second.isCancelled()).isTrue();
+    }
+}
@@ -0,0 +1,77 @@
+package com.adzerk.android.sdk;
+
+import android.util.Log;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk=25, constants=BuildConfig.class)
+public class AdzerkLogTest {
+
+    @After
+    public void tearDown() {
+        AdzerkLog.setLevel(Log.WARN);
+        AdzerkLog.setBufferCapacity(0);
+    }
+
+    @Test
+    public void itShouldNotFormatDisabledLevels() {
+        CountingArg arg = new CountingArg();
+        AdzerkLog.d("Test", "value: %s", arg);
+
+        assertThat(AdzerkLog.isLoggable(Log.DEBUG)).isFalse();
+        assertThat(arg.formatCount).isEqualTo(0);
+    }
+
+    @Test
+    public void itShouldBufferDebugEventsWithoutFormatting() {
+        AdzerkLog.setBufferCapacity(4);
+        CountingArg arg = new CountingArg();
+        AdzerkLog.d("Test", "value: %s", arg);
+
+        assertThat(AdzerkLog.isLoggable(Log.DEBUG)).isTrue();
+        assertThat(arg.formatCount).isEqualTo(0);
+
+        List<String> events = AdzerkLog.getRecentEvents();
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0)).endsWith("D/Test: value: arg");
+        assertThat(arg.formatCount).isEqualTo(1);
+    }
+
+    @Test
+    public void itShouldKeepMostRecentEvents() {
+        AdzerkLog.setBufferCapacity(2);
+        AdzerkLog.d("Test", "first");
+        AdzerkLog.d("Test", "second");
+        AdzerkLog.w("Test", "third %d", 3);
+
+        List<String> events = AdzerkLog.getRecentEvents();
+        assertThat(events).hasSize(2);
+        assertThat(events.get(0)).endsWith("D/Test: second");
+        assertThat(events.get(1)).endsWith("W/Test: third 3");
+    }
+
+    @Test
+    public void itShouldReturnNoEventsWhenBufferDisabled() {
+        AdzerkLog.w("Test", "warning");
+        assertThat(AdzerkLog.getRecentEvents()).isEmpty();
+    }
+
+    private static class CountingArg {
+        int formatCount;
+
+        @Override
+        public String toString() {
+            formatCount++;
+            return "arg";
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package com.adzerk.android.sdk;
 
+import com.adzerk.android.sdk.gson.GsonFactory;
 import com.adzerk.android.sdk.rest.AdzerkService;
+import com.adzerk.android.sdk.rest.Decision;
 import com.adzerk.android.sdk.rest.DecisionResponse;
+import com.adzerk.android.sdk.rest.FirePixelResponse;
 import com.adzerk.android.sdk.rest.Placement;
 import com.adzerk.android.sdk.rest.Request;
 import com.adzerk.android.sdk.rest.User;
@@ -11,7 +14,9 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatcher;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
@@ -21,15 +26,20 @@ import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
+import okhttp3.OkHttpClient;
 import okhttp3.RequestBody;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
 import retrofit2.Call;
 import retrofit2.Response;
 
@@ -43,6 +53,8 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -176,11 +188,352 @@ public class AdzerkSdkTest {
         }
     }
 
+    @Test
+    public void itShouldCoalesceIdenticalRequests() {
+        sdk.requestCoalescer = new RequestCoalescer();
+        when(api.request(any(Request.class))).thenReturn(mockRequestCall);
+        AdzerkSdk.DecisionListener otherListener = mock(AdzerkSdk.DecisionListener.class);
+
+        sdk.requestPlacement(createTestRequest(), mockDecisionListener);
+        sdk.requestPlacement(createTestRequest(), otherListener);
+        verify(api, times(1)).request(any(Request.class));
+
+        ArgumentCaptor<AdzerkSdk.AdzerkCallback> callback = ArgumentCaptor.forClass(AdzerkSdk.AdzerkCallback.class);
+        verify(mockRequestCall).enqueue(callback.capture());
+        callback.getValue().onResponse(mockRequestCall, Response.success(mockDecisionResponse));
+
+        verify(mockDecisionListener, times(1)).success(mockDecisionResponse);
+        verify(otherListener, times(1)).success(mockDecisionResponse);
+    }
+
+    @Test
+    public void itShouldKeepCoalescedCallWhenFirstFutureIsCancelled() throws Exception {
+        sdk.requestCoalescer = new RequestCoalescer();
+        when(api.request(any(Request.class))).thenReturn(mockRequestCall);
+
+        AdzerkFuture<DecisionResponse> first = sdk.requestPlacementAsync(createTestRequest());
+        AdzerkFuture<DecisionResponse> second = sdk.requestPlacementAsync(createTestRequest());
+        first.cancel(true);
+        verify(mockRequestCall, never()).cancel();
+
+        ArgumentCaptor<AdzerkSdk.AdzerkCallback> callback = ArgumentCaptor.forClass(AdzerkSdk.AdzerkCallback.class);
+        verify(mockRequestCall).enqueue(callback.capture());
+        callback.getValue().onResponse(mockRequestCall, Response.success(mockDecisionResponse));
+
+        assertThat(first.isCancelled()).isTrue();
+        assertThat(second.get()).isSameAs(mockDecisionResponse);
+    }
+
+    @Test
+    public void itShouldKeepCoalescedCallWhenFirstHandleIsCancelled() {
+        sdk.requestCoalescer = new RequestCoalescer();
+        when(api.request(any(Request.class))).thenReturn(mockRequestCall);
+        AdzerkSdk.DecisionListener otherListener = mock(AdzerkSdk.DecisionListener.class);
+        Object tag = new Object();
+
+        RequestHandle handle = sdk.requestPlacement(createTestRequest(), mockDecisionListener, tag);
+        sdk.requestPlacement(createTestRequest(), otherListener);
+        sdk.cancelAll(tag);
+        assertThat(handle.isCancelled()).isTrue();
+        verify(mockRequestCall, never()).cancel();
+
+        ArgumentCaptor<AdzerkSdk.AdzerkCallback> callback = ArgumentCaptor.forClass(AdzerkSdk.AdzerkCallback.class);
+        verify(mockRequestCall).enqueue(callback.capture());
+        callback.getValue().onResponse(mockRequestCall, Response.success(mockDecisionResponse));
+
+        verify(mockDecisionListener, never()).success(any(DecisionResponse.class));
+        verify(otherListener).success(mockDecisionResponse);
+    }
+
+    @Test
+    public void itShouldCompleteFutureWithDecisionResponse() throws Exception {
+        when(api.request(any(Request.class))).thenReturn(mockRequestCall);
+
+        AdzerkFuture<DecisionResponse> future = sdk.requestPlacementAsync(createTestRequest());
+        assertThat(future.isDone()).isFalse();
+
+        ArgumentCaptor<AdzerkSdk.AdzerkCallback> callback = ArgumentCaptor.forClass(AdzerkSdk.AdzerkCallback.class);
+        verify(mockRequestCall).enqueue(callback.capture());
+        callback.getValue().onResponse(mockRequestCall, Response.success(mockDecisionResponse));
+
+        assertThat(future.get()).isSameAs(mockDecisionResponse);
+    }
+
+    @Test
+    public void itShouldCancelCallWhenFutureCancelled() {
+        when(api.readUser(networkId, userKey)).thenReturn(mockUserCall);
+
+        AdzerkFuture<User> future = sdk.readUserAsync(networkId, userKey);
+        future.cancel(true);
+
+        verify(mockUserCall).cancel();
+    }
+
+    @Test
+    public void itShouldCancelTaggedRequests() {
+        when(api.request(any(Request.class))).thenReturn(mockRequestCall);
+
+        RequestHandle handle = sdk.requestPlacement(createTestRequest(), mockDecisionListener, "screen");
+        sdk.cancelAll("screen");
+
+        verify(mockRequestCall).cancel();
+        assertThat(handle.isCancelled()).isTrue();
+
+        ArgumentCaptor<AdzerkSdk.AdzerkCallback> callback = ArgumentCaptor.forClass(AdzerkSdk.AdzerkCallback.class);
+        verify(mockRequestCall).enqueue(callback.capture());
+        callback.getValue().onFailure(mockRequestCall, new IOException("Canceled"));
+        verify(mockDecisionListener, never()).error(any(AdzerkSdk.AdzerkError.class));
+    }
+
+    @Test
+    public void itShouldCallListenersOnCallbackExecutor() throws Exception {
+        mockWebServer.enqueue(new MockResponse().setBody("{\"decisions\":{}}"));
+        RecordingExecutor executor = new RecordingExecutor();
+
+        AdzerkSdk sdk = new AdzerkSdk.Builder().networkId(23L).hostname(mockWebServer.getHostName() + ":" + mockWebServer.getPort()).protocol("http")
+                .callbackExecutor(executor)
+                .build();
+        sdk.requestPlacement(createTestRequest(), mockDecisionListener);
+
+        verify(mockDecisionListener, timeout(2000)).success(any(DecisionResponse.class));
+        assertThat(executor.executed).isEqualTo(1);
+    }
+
+    @Test
+    public void itShouldFirePixelWithoutListener() throws Exception {
+        mockWebServer.enqueue(new MockResponse());
+        RecordingExecutor executor = new RecordingExecutor();
+
+        AdzerkSdk sdk = new AdzerkSdk.Builder().networkId(23L).hostname(mockWebServer.getHostName() + ":" + mockWebServer.getPort()).protocol("http")
+                .callbackExecutor(executor)
+                .build();
+        sdk.firePixel(mockWebServer.url("clicked").toString(), null);
+
+        mockWebServer.takeRequest();
+        synchronized (executor) {
+            while (executor.executed == 0) {
+                executor.wait(2000);
+            }
+        }
+        assertThat(executor.failure).isNull();
+    }
+
+    @Test
+    public void itShouldNotReplayPixelCancelledByApp() throws Exception {
+        mockWebServer.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+
+        AdzerkSdk sdk = new AdzerkSdk.Builder().networkId(23L).hostname(mockWebServer.getHostName() + ":" + mockWebServer.getPort()).protocol("http")
+                .pixelJournal(folder.newFolder("pixels"))
+                .build();
+        AdzerkFuture<FirePixelResponse> future = sdk.firePixelAsync(mockWebServer.url("clicked").toString());
+        mockWebServer.takeRequest();
+        future.cancel(true);
+
+        // a failed pixel would stay journaled until its replay, 5 seconds later
+        long deadline = System.currentTimeMillis() + 2000L;
+        while (sdk.pixelJournal.size() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        assertThat(sdk.pixelJournal.size()).isEqualTo(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void builderShouldRejectNullCallbackExecutor() {
+        new AdzerkSdk.Builder().networkId(23L).callbackExecutor(null);
+    }
+
+    @Test
+    public void itShouldFailRequestOnceDeadlinePassed() throws Exception {
+        mockWebServer.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+
+        AdzerkSdk sdk = new AdzerkSdk.Builder().networkId(23L).hostname(mockWebServer.getHostName() + ":" + mockWebServer.getPort()).protocol("http").build();
+        sdk.requestPlacement(createTestRequest(), mockDecisionListener, 100, TimeUnit.MILLISECONDS);
+
+        verify(mockDecisionListener, timeout(2000)).error(any(AdzerkSdk.AdzerkError.class));
+        verify(mockDecisionListener, never()).success(any(DecisionResponse.class));
+    }
+
+    @Test
+    public void itShouldApplyDecisionTimeout() throws Exception {
+        mockWebServer.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+
+        AdzerkSdk sdk = new AdzerkSdk.Builder().networkId(23L).hostname(mockWebServer.getHostName() + ":" + mockWebServer.getPort()).protocol("http")
+                .decisionTimeout(100, TimeUnit.MILLISECONDS)
+                .build();
+        assertNull(sdk.requestPlacementSynchronous(createTestRequest()));
+    }
+
+    @Test
+    public void itShouldHedgeSlowDecisionRequest() throws Exception {
+        mockWebServer.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+        mockWebServer.enqueue(new MockResponse().setBody("{\"decisions\":{}}"));
+
+        AdzerkSdk sdk = new AdzerkSdk.Builder().networkId(23L).hostname(mockWebServer.getHostName() + ":" + mockWebServer.getPort()).protocol("http")
+                .hedgeRequests(95, 50L)
+                .build();
+        sdk.requestPlacement(createTestRequest(), mockDecisionListener);
+
+        verify(mockDecisionListener, timeout(2000)).success(any(DecisionResponse.class));
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(2);
+        assertThat(sdk.requestHedger.getHedgeWinCount()).isEqualTo(1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void builderShouldRejectHedgePercentileOutOfRange() {
+        new AdzerkSdk.Builder().networkId(23L).hedgeRequests(100, 50L);
+    }
+
+    @Test
+    public void itShouldAttachRecordedFlightViewTimes() throws Exception {
+        mockWebServer.enqueue(new MockResponse());
+        mockWebServer.enqueue(new MockResponse().setBody("{\"decisions\":{}}"));
+
+        AdzerkSdk sdk = new AdzerkSdk.Builder().networkId(23L).hostname(mockWebServer.getHostName() + ":" + mockWebServer.getPort()).protocol("http")
+                .frequencyCapping(10, 60000L)
+                .build();
+        Decision decision = GsonFactory.create().fromJson("{\"adId\":1,\"flightId\":42,\"impressionUrl\":\""
+                + mockWebServer.url("/i.gif") + "\"}", Decision.class);
+        assertTrue(sdk.impression(decision));
+        sdk.requestPlacementSynchronous(createTestRequest());
+
+        String body = null;
+        for (int i = 0; i < 2; i++) {
+            RecordedRequest httpRequest = mockWebServer.takeRequest();
+            if (httpRequest.getPath().startsWith("/api/v2")) {
+                body = httpRequest.getBody().readUtf8();
+            }
+        }
+        assertThat(body).contains("\"flightViewTimes\":{\"42\":[");
+    }
+
+    @Test
+    public void itShouldSendFreshFlightViewTimesWhenRequestIsReused() throws Exception {
+        mockWebServer.enqueue(new MockResponse());
+        mockWebServer.enqueue(new MockResponse().setBody("{\"decisions\":{}}"));
+        mockWebServer.enqueue(new MockResponse());
+        mockWebServer.enqueue(new MockResponse().setBody("{\"decisions\":{}}"));
+
+        AdzerkSdk sdk = new AdzerkSdk.Builder().networkId(23L).hostname(mockWebServer.getHostName() + ":" + mockWebServer.getPort()).protocol("http")
+                .frequencyCapping(10, 60000L)
+                .build();
+        Request request = createTestRequest();
+        assertTrue(sdk.impression(createDecision(42)));
+        sdk.requestPlacementSynchronous(request);
+        assertTrue(sdk.impression(createDecision(42)));
+        sdk.requestPlacementSynchronous(request);
+
+        List<String> bodies = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            RecordedRequest httpRequest = mockWebServer.takeRequest();
+            if (httpRequest.getPath().startsWith("/api/v2")) {
+                bodies.add(httpRequest.getBody().readUtf8());
+            }
+        }
+        assertThat(bodies).hasSize(2);
+        assertThat(bodies.get(0)).containsPattern("\"42\":\\[\\d+\\]");
+        // both views, not the one attached to the first request
+        assertThat(bodies.get(1)).containsPattern("\"42\":\\[\\d+,\\d+\\]");
+        // the Request of the app is not changed
+        assertThat(request.getAllFlightViewTimes()).isNull();
+    }
+
+    @Test
+    public void itShouldNotRecordViewOfRejectedImpression() throws Exception {
+        // the first pixel holds the only worker, the second fills the queue
+        mockWebServer.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+
+        AdzerkSdk sdk = new AdzerkSdk.Builder().networkId(23L).hostname(mockWebServer.getHostName() + ":" + mockWebServer.getPort()).protocol("http")
+                .frequencyCapping(10, 60000L)
+                .pixelConcurrency(1)
+                .pixelQueueCapacity(1)
+                .build();
+        assertTrue(sdk.impression(createDecision(42)));
+        mockWebServer.takeRequest();
+        assertTrue(sdk.impression(createDecision(42)));
+        assertThat(sdk.impression(createDecision(42))).isFalse();
+
+        assertThat(sdk.frequencyCapStore.getFlightViewTimes(System.currentTimeMillis()).get(42)).hasSize(2);
+    }
+
+    private Decision createDecision(int flightId) {
+        return GsonFactory.create().fromJson("{\"adId\":1,\"flightId\":" + flightId + ",\"impressionUrl\":\""
+                + mockWebServer.url("/i.gif") + "\"}", Decision.class);
+    }
+
+    @Test
+    public void itShouldReuseJsonOfRepeatedRequest() throws Exception {
+        mockWebServer.enqueue(new MockResponse().setBody("{\"decisions\":{}}"));
+        mockWebServer.enqueue(new MockResponse().setBody("{\"decisions\":{}}"));
+
+        AdzerkSdk sdk = new AdzerkSdk.Builder().networkId(23L).hostname(mockWebServer.getHostName() + ":" + mockWebServer.getPort()).protocol("http")
+                .reuseRequestJson(true)
+                .build();
+        Placement placement = new Placement("div1", 9709L, 70464L, 5);
+        Request request = new Request.Builder(Arrays.asList(placement)).setUser(new User("abc")).build();
+        sdk.requestPlacementSynchronous(request);
+        placement.setCount(2);
+        sdk.requestPlacementSynchronous(request);
+
+        String first = mockWebServer.takeRequest().getBody().readUtf8();
+        String second = mockWebServer.takeRequest().getBody().readUtf8();
+        assertThat(first).doesNotContain("\"count\"");
+        assertThat(second).contains("\"count\":2");
+        assertThat(second).contains("\"user\":{\"key\":\"abc\"");
+        // the changed placement is written again, the user is not
+        assertThat(sdk.requestBodyEncoder.getWrittenCount()).isEqualTo(3);
+        assertThat(sdk.requestBodyEncoder.getReusedCount()).isEqualTo(1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void builderShouldRejectGzipLevelOutOfRange() {
+        new AdzerkSdk.Builder().networkId(23L).gzipRequests(1024, 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void builderShouldRejectNegativeTimeout() {
+        new AdzerkSdk.Builder().networkId(23L).pixelTimeout(-1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void itShouldServePrefetchedDecisionsWithoutNetworkCall() {
+        sdk.decisionCache = new DecisionCache(GsonFactory.create(), 8, 60000L);
+        when(api.request(any(Request.class))).thenReturn(mockRequestCall);
+        when(mockDecisionResponse.getDecisions()).thenReturn(new HashMap<String, List<Decision>>());
+        when(mockDecisionResponse.getDecisions("div1")).thenReturn(Arrays.asList(new Decision()));
+        doAnswerDecisionResponse();
+
+        sdk.prefetchPlacements(createTestRequest());
+        verify(api, times(1)).request(any(Request.class));
+
+        sdk.requestPlacement(createTestRequest(), mockDecisionListener);
+        verify(api, times(1)).request(any(Request.class));
+        verify(mockDecisionListener, times(1)).success(any(DecisionResponse.class));
+    }
+
     @Test
     public void itShouldRefuseMalformedUrls() {
         assertThat(sdk.impression("this is wrong")).isFalse();
     }
 
+    @Test
+    public void itShouldFireImpressionWithSdkClient() throws Exception {
+        mockWebServer.enqueue(new MockResponse());
+        String impressionUrl = mockWebServer.url("i.gif").toString();
+
+        AdzerkSdk sdk = new AdzerkSdk.Builder().networkId(23L).hostname(mockWebServer.getHostName() + ":" + mockWebServer.getPort()).protocol("http").build();
+        assertThat(sdk.impression(impressionUrl)).isTrue();
+
+        RecordedRequest httpRequest = mockWebServer.takeRequest(5, TimeUnit.SECONDS);
+        assertEquals("/i.gif", httpRequest.getPath());
+        assertEquals("adzerk-decision-sdk-android:" + BuildConfig.VERSION_NAME, httpRequest.getHeader("X-Adzerk-Sdk-Version"));
+    }
+
+    @Test
+    public void builderShouldRequirePositivePixelConcurrency() {
+        exceptionRule.expect(IllegalArgumentException.class);
+        new AdzerkSdk.Builder().networkId(23L).pixelConcurrency(0);
+    }
+
     @Test
     public void itShouldSetUserPropertiesFromMap() {
         Map<String, Object> map = new HashMap<>();
@@ -307,6 +660,9 @@ public class AdzerkSdkTest {
     @Rule
     public ExpectedException exceptionRule = ExpectedException.none();
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Test
     public void builderShouldRequireNetworkId() {
         exceptionRule.expect(IllegalStateException.class);
@@ -332,6 +688,54 @@ public class AdzerkSdkTest {
         assertTrue(sdk.baseUrl.equals("https://e-23.adzerk.net"));
     }
 
+    @Test
+    public void builderShouldTuneDispatcherAndConnectionPool() {
+        AdzerkSdk sdk = new AdzerkSdk.Builder().networkId(23L)
+                .maxRequests(32)
+                .maxRequestsPerHost(16)
+                .connectionPool(8, 1, TimeUnit.MINUTES)
+                .build();
+
+        assertEquals(32, sdk.client.dispatcher().getMaxRequests());
+        assertEquals(16, sdk.client.dispatcher().getMaxRequestsPerHost());
+        assertTrue(sdk.client.connectionPool() == sdk.connectionPool);
+    }
+
+    @Test
+    public void builderShouldShareAppHttpClient() {
+        OkHttpClient appClient = new OkHttpClient();
+        AdzerkSdk sdk = new AdzerkSdk.Builder().networkId(23L).httpClient(appClient).maxRequestsPerHost(16).build();
+
+        assertTrue(sdk.client.connectionPool() == appClient.connectionPool());
+        assertTrue(sdk.client.dispatcher().executorService() == appClient.dispatcher().executorService());
+        assertEquals(16, sdk.client.dispatcher().getMaxRequestsPerHost());
+        assertEquals(5, appClient.dispatcher().getMaxRequestsPerHost());
+        assertTrue(appClient.interceptors().isEmpty());
+    }
+
+    @Test
+    public void builderShouldRejectConnectionPoolWithSharedClient() {
+        exceptionRule.expect(IllegalStateException.class);
+        new AdzerkSdk.Builder().networkId(23L).httpClient(new OkHttpClient()).connectionPool(8, 1, TimeUnit.MINUTES).build();
+    }
+
+    // Runs tasks on the calling thread, counting them and keeping the first failure
+    private static class RecordingExecutor implements Executor {
+        int executed;
+        Throwable failure;
+
+        @Override
+        public synchronized void execute(Runnable command) {
+            try {
+                command.run();
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+            executed++;
+            notifyAll();
+        }
+    }
+
     private Request createTestRequest() {
         String divName = "div1";
         long networkId = 9709;
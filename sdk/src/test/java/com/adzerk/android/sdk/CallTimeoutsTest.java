@@ -0,0 +1,50 @@
+package com.adzerk.android.sdk;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk=25, constants=BuildConfig.class)
+public class CallTimeoutsTest {
+
+    CallTimeouts callTimeouts = new CallTimeouts(new OkHttpClient(), 1000L, 2000L, 3000L);
+
+    @Test
+    public void itShouldChooseTimeoutByOperation() {
+        assertThat(callTimeouts.timeoutMillis(Operations.REQUEST_PLACEMENT)).isEqualTo(1000L);
+        assertThat(callTimeouts.timeoutMillis("ReadUser")).isEqualTo(2000L);
+        assertThat(callTimeouts.timeoutMillis("SetUserInterest")).isEqualTo(2000L);
+        assertThat(callTimeouts.timeoutMillis(Operations.FIRE_PIXEL)).isEqualTo(3000L);
+        assertThat(callTimeouts.timeoutMillis(Operations.IMPRESSION)).isEqualTo(3000L);
+        assertThat(callTimeouts.timeoutMillis(Operations.WARM_UP)).isEqualTo(0L);
+        assertThat(callTimeouts.timeoutMillis(Operations.UNKNOWN)).isEqualTo(0L);
+    }
+
+    @Test
+    public void itShouldSetCallTimeout() {
+        Request request = new Request.Builder().url("http://localhost/pixel")
+                .tag(String.class, Operations.IMPRESSION)
+                .build();
+        Call call = callTimeouts.newCall(request);
+
+        assertThat(call.timeout().timeoutNanos()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(3000L));
+    }
+
+    @Test
+    public void itShouldLeaveUntaggedCallsWithoutTimeout() {
+        Request request = new Request.Builder().url("http://localhost/").build();
+        Call call = callTimeouts.newCall(request);
+
+        assertThat(call.timeout().timeoutNanos()).isEqualTo(0L);
+    }
+}
@@ -0,0 +1,72 @@
+package com.adzerk.android.sdk;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk=25, constants=BuildConfig.class)
+public class ConnectionWarmerTest {
+
+    @Mock AdzerkSdk.WarmUpListener listener;
+
+    MockWebServer server;
+    OkHttpClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        MockitoAnnotations.initMocks(this);
+        server = new MockWebServer();
+        server.start();
+        client = new OkHttpClient();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void itShouldOpenPooledConnection() throws InterruptedException {
+        server.enqueue(new MockResponse().setResponseCode(404));
+
+        new ConnectionWarmer(client, server.url("/"), listener, null).run();
+
+        RecordedRequest request = server.takeRequest();
+        assertThat(request.getMethod()).isEqualTo("HEAD");
+        assertThat(client.connectionPool().connectionCount()).isEqualTo(1);
+
+        ArgumentCaptor<WarmUpTiming> timing = ArgumentCaptor.forClass(WarmUpTiming.class);
+        verify(listener).success(timing.capture());
+        assertThat(timing.getValue().getTotalMillis())
+                .isEqualTo(timing.getValue().getDnsMillis() + timing.getValue().getConnectMillis());
+    }
+
+    @Test
+    public void itShouldReportConnectionFailure() throws IOException {
+        server.shutdown();
+
+        new ConnectionWarmer(client, server.url("/"), listener, null).run();
+
+        verify(listener).error(any(AdzerkSdk.AdzerkError.class));
+        verify(listener, never()).success(any(WarmUpTiming.class));
+    }
+}
@@ -0,0 +1,178 @@
+package com.adzerk.android.sdk;
+
+import com.adzerk.android.sdk.gson.GsonFactory;
+import com.adzerk.android.sdk.rest.Decision;
+import com.adzerk.android.sdk.rest.DecisionResponse;
+import com.adzerk.android.sdk.rest.Placement;
+import com.adzerk.android.sdk.rest.Request;
+import com.adzerk.android.sdk.rest.User;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk=25, constants=BuildConfig.class)
+public class DecisionCacheTest {
+
+    @Test
+    public void itShouldDeliverPrefetchedDecisionsOnce() {
+        DecisionCache cache = new DecisionCache(GsonFactory.create(), 8, 60000L);
+        Request request = createRequest("div1", "div2");
+        cache.put(request, createResponse("div1", "div2"));
+
+        DecisionResponse cached = cache.take(createRequest("div2", "div1"));
+        assertThat(cached).isNotNull();
+        assertThat(cached.getUser().getKey()).isEqualTo("abc");
+        assertThat(cached.getDecisions()).containsOnlyKeys("div1", "div2");
+
+        assertThat(cache.take(request)).isNull();
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void itShouldMissUnlessAllPlacementsAreCached() {
+        DecisionCache cache = new DecisionCache(GsonFactory.create(), 8, 60000L);
+        cache.put(createRequest("div1"), createResponse("div1"));
+
+        assertThat(cache.take(createRequest("div1", "div2"))).isNull();
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void itShouldMatchOnSiteAndAdTypes() {
+        DecisionCache cache = new DecisionCache(GsonFactory.create(), 8, 60000L);
+        cache.put(createRequest("div1"), createResponse("div1"));
+
+        Request otherSite = new Request.Builder().addPlacement(new Placement("div1", 9709L, 1L, 5)).build();
+        assertThat(cache.take(otherSite)).isNull();
+
+        Request otherAdTypes = new Request.Builder().addPlacement(new Placement("div1", 9709L, 70464L, 4, 5)).build();
+        assertThat(cache.take(otherAdTypes)).isNull();
+    }
+
+    @Test
+    public void itShouldMatchOnRequestTargeting() {
+        DecisionCache cache = new DecisionCache(GsonFactory.create(), 8, 60000L);
+        Request request = new Request.Builder()
+                .addPlacement(new Placement("div1", 9709L, 70464L, 5))
+                .setUser(new User("abc"))
+                .addKeywords("sports")
+                .build();
+        cache.put(request, createResponse("div1"));
+
+        Request otherUser = new Request.Builder()
+                .addPlacement(new Placement("div1", 9709L, 70464L, 5))
+                .setUser(new User("xyz"))
+                .addKeywords("sports")
+                .build();
+        assertThat(cache.take(otherUser)).isNull();
+
+        Request otherKeywords = new Request.Builder()
+                .addPlacement(new Placement("div1", 9709L, 70464L, 5))
+                .setUser(new User("abc"))
+                .addKeywords("news")
+                .build();
+        assertThat(cache.take(otherKeywords)).isNull();
+
+        Request sameTargeting = new Request.Builder()
+                .addPlacement(new Placement("div1", 9709L, 70464L, 5))
+                .setUser(new User("abc"))
+                .addKeywords("sports")
+                .build();
+        assertThat(cache.take(sameTargeting)).isNotNull();
+    }
+
+    @Test
+    public void itShouldMatchOnPlacementCountAndProperties() {
+        DecisionCache cache = new DecisionCache(GsonFactory.create(), 8, 60000L);
+        Request request = new Request.Builder()
+                .addPlacement(new Placement("div1", 9709L, 70464L, 5).addProperty("section", "sports"))
+                .build();
+        cache.put(request, createResponse("div1"));
+
+        Request otherProperties = new Request.Builder()
+                .addPlacement(new Placement("div1", 9709L, 70464L, 5).addProperty("section", "news"))
+                .build();
+        assertThat(cache.take(otherProperties)).isNull();
+
+        Request otherCount = new Request.Builder()
+                .addPlacement(new Placement("div1", 9709L, 70464L, 5).addProperty("section", "sports").setCount(3))
+                .build();
+        assertThat(cache.take(otherCount)).isNull();
+        assertThat(cache.take(request)).isNotNull();
+    }
+
+    @Test
+    public void itShouldMatchOnEveryFieldSentToServer() {
+        DecisionCache cache = new DecisionCache(GsonFactory.create(), 8, 60000L);
+        Request request = new Request.Builder()
+                .addPlacement(new Placement("div1", 9709L, 70464L, 5).setCampaignId(1))
+                .setUrl("https://example.com/sports")
+                .build();
+        cache.put(request, createResponse("div1"));
+
+        Request otherCampaign = new Request.Builder()
+                .addPlacement(new Placement("div1", 9709L, 70464L, 5).setCampaignId(2))
+                .setUrl("https://example.com/sports")
+                .build();
+        assertThat(cache.take(otherCampaign)).isNull();
+
+        Request otherUrl = new Request.Builder()
+                .addPlacement(new Placement("div1", 9709L, 70464L, 5).setCampaignId(1))
+                .setUrl("https://example.com/news")
+                .build();
+        assertThat(cache.take(otherUrl)).isNull();
+
+        Request sameRequest = new Request.Builder()
+                .addPlacement(new Placement("div1", 9709L, 70464L, 5).setCampaignId(1))
+                .setUrl("https://example.com/sports")
+                .build();
+        assertThat(cache.take(sameRequest)).isNotNull();
+    }
+
+    @Test
+    public void itShouldExpireEntries() throws Exception {
+        DecisionCache cache = new DecisionCache(GsonFactory.create(), 8, 1L);
+        cache.put(createRequest("div1"), createResponse("div1"));
+        Thread.sleep(10L);
+
+        assertThat(cache.take(createRequest("div1"))).isNull();
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void itShouldEvictLeastRecentlyUsed() {
+        DecisionCache cache = new DecisionCache(GsonFactory.create(), 2, 60000L);
+        cache.put(createRequest("div1", "div2"), createResponse("div1", "div2"));
+        cache.put(createRequest("div3"), createResponse("div3"));
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.take(createRequest("div1"))).isNull();
+        assertThat(cache.take(createRequest("div3"))).isNotNull();
+    }
+
+    private Request createRequest(String... divNames) {
+        Request.Builder builder = new Request.Builder();
+        for (String divName : divNames) {
+            builder.addPlacement(new Placement(divName, 9709L, 70464L, 5));
+        }
+        return builder.build();
+    }
+
+    private DecisionResponse createResponse(String... divNames) {
+        Map<String, List<Decision>> decisions = new HashMap<>();
+        for (String divName : divNames) {
+            decisions.put(divName, Arrays.asList(new Decision()));
+        }
+        return new DecisionResponse(new User("abc"), decisions);
+    }
+}
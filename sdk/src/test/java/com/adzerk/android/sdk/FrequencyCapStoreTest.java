@@ -0,0 +1,64 @@
+package com.adzerk.android.sdk;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk=25, constants=BuildConfig.class)
+public class FrequencyCapStoreTest {
+
+    static final long NOW = 1600000000000L;
+
+    @Test
+    public void itShouldReturnViewTimesInEpochSeconds() {
+        FrequencyCapStore store = new FrequencyCapStore(10, 60000L);
+        store.recordView(1, NOW - 2000L);
+        store.recordView(1, NOW - 1000L);
+        store.recordView(2, NOW);
+
+        Map<Integer, List<Long>> viewTimes = store.getFlightViewTimes(NOW);
+        assertThat(viewTimes).containsOnlyKeys(1, 2);
+        assertThat(viewTimes.get(1)).containsExactly(1599999998L, 1599999999L);
+        assertThat(viewTimes.get(2)).containsExactly(1600000000L);
+    }
+
+    @Test
+    public void itShouldKeepMostRecentViewsPerFlight() {
+        FrequencyCapStore store = new FrequencyCapStore(2, 60000L);
+        store.recordView(1, NOW - 3000L);
+        store.recordView(1, NOW - 2000L);
+        store.recordView(1, NOW - 1000L);
+
+        assertThat(store.getFlightViewTimes(NOW).get(1)).containsExactly(1599999998L, 1599999999L);
+    }
+
+    @Test
+    public void itShouldDropExpiredViews() {
+        FrequencyCapStore store = new FrequencyCapStore(10, 5000L);
+        store.recordView(1, NOW - 10000L);
+        store.recordView(2, NOW - 10000L);
+        store.recordView(2, NOW - 1000L);
+
+        Map<Integer, List<Long>> viewTimes = store.getFlightViewTimes(NOW);
+        assertThat(viewTimes).containsOnlyKeys(2);
+        assertThat(viewTimes.get(2)).containsExactly(1599999999L);
+        assertThat(store.getFlightCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void itShouldClearViews() {
+        FrequencyCapStore store = new FrequencyCapStore(10, 60000L);
+        store.recordView(1, NOW);
+        store.clear();
+
+        assertThat(store.getFlightViewTimes(NOW)).isEmpty();
+        assertThat(store.getFlightCount()).isEqualTo(0);
+    }
+}
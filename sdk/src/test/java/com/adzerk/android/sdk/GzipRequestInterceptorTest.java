@@ -0,0 +1,126 @@
+package com.adzerk.android.sdk;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.GzipSource;
+import okio.Okio;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk=25, constants=BuildConfig.class)
+public class GzipRequestInterceptorTest {
+
+    static final MediaType JSON = MediaType.parse("application/json; charset=UTF-8");
+
+    MockWebServer server;
+    GzipRequestInterceptor interceptor;
+    OkHttpClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        interceptor = new GzipRequestInterceptor(256, 6, null);
+        client = new OkHttpClient.Builder().addInterceptor(interceptor).build();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void itShouldCompressLargeDecisionRequest() throws Exception {
+        String json = largeJson();
+        RecordedRequest recorded = post("/api/v2", json);
+
+        assertThat(recorded.getHeader("Content-Encoding")).isEqualTo("gzip");
+        assertThat(recorded.getBodySize()).isLessThan(json.length());
+        assertThat(recorded.getHeader("Content-Type")).isEqualTo(JSON.toString());
+        assertThat(gunzip(recorded.getBody())).isEqualTo(json);
+        assertThat(interceptor.getCompressedCount()).isEqualTo(1);
+        assertThat(interceptor.getBytesSaved()).isEqualTo(json.length() - recorded.getBodySize());
+    }
+
+    @Test
+    public void itShouldCompressUserProperties() throws Exception {
+        String json = largeJson();
+        RecordedRequest recorded = post("/udb/9792/custom?userKey=ue1-abc", json);
+
+        assertThat(recorded.getHeader("Content-Encoding")).isEqualTo("gzip");
+        assertThat(gunzip(recorded.getBody())).isEqualTo(json);
+    }
+
+    @Test
+    public void itShouldNotCompressSmallBody() throws Exception {
+        RecordedRequest recorded = post("/api/v2", "{\"placements\":[]}");
+
+        assertThat(recorded.getHeader("Content-Encoding")).isNull();
+        assertThat(recorded.getBody().readUtf8()).isEqualTo("{\"placements\":[]}");
+        assertThat(interceptor.getCompressedCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void itShouldNotCompressOtherRequests() throws Exception {
+        String json = largeJson();
+        RecordedRequest recorded = post("/e.gif", json);
+
+        assertThat(recorded.getHeader("Content-Encoding")).isNull();
+        assertThat(recorded.getBody().readUtf8()).isEqualTo(json);
+    }
+
+    @Test
+    public void itShouldMatchCompressiblePaths() {
+        assertThat(GzipRequestInterceptor.isCompressible(post("http://localhost/api/v2"))).isTrue();
+        assertThat(GzipRequestInterceptor.isCompressible(post("http://localhost/udb/1/custom?userKey=a"))).isTrue();
+        assertThat(GzipRequestInterceptor.isCompressible(post("http://localhost/udb/1/read"))).isFalse();
+        assertThat(GzipRequestInterceptor.isCompressible(post("http://localhost/api/v1"))).isFalse();
+        assertThat(GzipRequestInterceptor.isCompressible(
+                new Request.Builder().url("http://localhost/api/v2").build())).isFalse();
+    }
+
+    RecordedRequest post(String path, String json) throws Exception {
+        server.enqueue(new MockResponse());
+        Request request = new Request.Builder()
+                .url(server.url(path))
+                .post(RequestBody.create(JSON, json))
+                .build();
+        client.newCall(request).execute().close();
+        return server.takeRequest();
+    }
+
+    static Request post(String url) {
+        return new Request.Builder().url(url).post(RequestBody.create(JSON, "{}")).build();
+    }
+
+    static String gunzip(Buffer body) throws IOException {
+        return Okio.buffer(new GzipSource(body)).readUtf8();
+    }
+
+    static String largeJson() {
+        StringBuilder json = new StringBuilder("{\"placements\":[");
+        for (int i = 0; i < 50; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"divName\":\"div").append(i).append("\",\"networkId\":9792,\"siteId\":70464,\"adTypes\":[5]}");
+        }
+        return json.append("]}").toString();
+    }
+}
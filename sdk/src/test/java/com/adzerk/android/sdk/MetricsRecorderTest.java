@@ -0,0 +1,162 @@
+package com.adzerk.android.sdk;
+
+import com.adzerk.android.sdk.rest.DecisionResponse;
+import com.adzerk.android.sdk.rest.Placement;
+import com.adzerk.android.sdk.rest.Request;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk=25, constants=BuildConfig.class)
+public class MetricsRecorderTest {
+
+    static final String DECISION_JSON = "{\"user\":{\"key\":\"ue1-abc\"},\"decisions\":{\"div1\":null}}";
+
+    @Mock AdzerkSdk.MetricsListener metricsListener;
+    @Mock AdzerkSdk.DecisionListener decisionListener;
+
+    MockWebServer server;
+    AdzerkSdk sdk;
+
+    @Before
+    public void setUp() throws IOException {
+        MockitoAnnotations.initMocks(this);
+        server = new MockWebServer();
+        server.start();
+        sdk = new AdzerkSdk.Builder()
+                .networkId(23L)
+                .hostname(server.getHostName() + ":" + server.getPort())
+                .protocol("http")
+                .metricsListener(metricsListener)
+                .build();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void itShouldReportMetricsAfterListenerDispatch() {
+        server.enqueue(new MockResponse().setBody(DECISION_JSON));
+
+        sdk.requestPlacement(createRequest(), decisionListener);
+
+        ArgumentCaptor<CallMetrics> metrics = ArgumentCaptor.forClass(CallMetrics.class);
+        verify(metricsListener, timeout(2000)).onCallMetrics(metrics.capture());
+        verify(decisionListener).success(any(DecisionResponse.class));
+
+        CallMetrics callMetrics = metrics.getValue();
+        assertThat(callMetrics.getOperation()).isEqualTo("RequestPlacement");
+        assertThat(callMetrics.getStatusCode()).isEqualTo(200);
+        assertThat(callMetrics.getRequestBytes()).isGreaterThan(0);
+        assertThat(callMetrics.getResponseBytes()).isEqualTo(DECISION_JSON.length());
+        assertThat(callMetrics.getParseTime(TimeUnit.NANOSECONDS)).isGreaterThan(0);
+        assertThat(callMetrics.getDispatchTime(TimeUnit.NANOSECONDS)).isGreaterThan(0);
+        assertThat(callMetrics.getFailure()).isNull();
+    }
+
+    @Test
+    public void itShouldReportOneRecordForHedgedRequest() throws Exception {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+        server.enqueue(new MockResponse().setBody(DECISION_JSON));
+        AdzerkSdk sdk = new AdzerkSdk.Builder()
+                .networkId(23L)
+                .hostname(server.getHostName() + ":" + server.getPort())
+                .protocol("http")
+                .metricsListener(metricsListener)
+                .hedgeRequests(95, 50L)
+                .build();
+
+        sdk.requestPlacement(createRequest(), decisionListener);
+
+        ArgumentCaptor<CallMetrics> metrics = ArgumentCaptor.forClass(CallMetrics.class);
+        verify(metricsListener, timeout(2000)).onCallMetrics(metrics.capture());
+        assertThat(sdk.requestHedger.getHedgeWinCount()).isEqualTo(1);
+
+        // the first call is cancelled by the winning duplicate and not reported
+        Thread.sleep(200L);
+        verify(metricsListener, times(1)).onCallMetrics(any(CallMetrics.class));
+        CallMetrics callMetrics = metrics.getValue();
+        assertThat(callMetrics.getOperation()).isEqualTo("RequestPlacement");
+        assertThat(callMetrics.getStatusCode()).isEqualTo(200);
+        assertThat(callMetrics.getDispatchTime(TimeUnit.NANOSECONDS)).isGreaterThan(0);
+        assertThat(callMetrics.getFailure()).isNull();
+    }
+
+    @Test
+    public void itShouldReportUncompressedRequestBytes() {
+        server.enqueue(new MockResponse().setBody(DECISION_JSON));
+        AdzerkSdk sdk = new AdzerkSdk.Builder()
+                .networkId(23L)
+                .hostname(server.getHostName() + ":" + server.getPort())
+                .protocol("http")
+                .metricsListener(metricsListener)
+                .gzipRequests(0, 9)
+                .build();
+        Request request = new Request.Builder()
+                .addPlacement(new Placement("div1", 70464L, 5))
+                .addPlacement(new Placement("div2", 70464L, 5))
+                .addPlacement(new Placement("div3", 70464L, 5))
+                .build();
+
+        sdk.requestPlacement(request, decisionListener);
+
+        ArgumentCaptor<CallMetrics> metrics = ArgumentCaptor.forClass(CallMetrics.class);
+        verify(metricsListener, timeout(2000)).onCallMetrics(metrics.capture());
+        CallMetrics callMetrics = metrics.getValue();
+        assertThat(callMetrics.getRequestBytes()).isGreaterThan(0);
+        assertThat(callMetrics.getUncompressedRequestBytes()).isGreaterThan(callMetrics.getRequestBytes());
+    }
+
+    @Test
+    public void itShouldReportSynchronousCallsByServiceOperation() throws IOException {
+        server.enqueue(new MockResponse());
+
+        sdk.firePixelSynchronous(server.url("clicked").toString());
+
+        ArgumentCaptor<CallMetrics> metrics = ArgumentCaptor.forClass(CallMetrics.class);
+        verify(metricsListener, timeout(2000)).onCallMetrics(metrics.capture());
+        assertThat(metrics.getValue().getOperation()).isEqualTo("FirePixel");
+        assertThat(metrics.getValue().getDispatchTime(TimeUnit.NANOSECONDS)).isEqualTo(0);
+    }
+
+    @Test
+    public void itShouldReportFailedCalls() throws IOException {
+        server.shutdown();
+
+        sdk.requestPlacement(createRequest(), decisionListener);
+
+        ArgumentCaptor<CallMetrics> metrics = ArgumentCaptor.forClass(CallMetrics.class);
+        verify(metricsListener, timeout(2000)).onCallMetrics(metrics.capture());
+        verify(decisionListener).error(any(AdzerkSdk.AdzerkError.class));
+        assertThat(metrics.getValue().getFailure()).isNotNull();
+        assertThat(metrics.getValue().getStatusCode()).isEqualTo(0);
+    }
+
+    private Request createRequest() {
+        return new Request.Builder(Collections.singletonList(new Placement("div1", 9709L, 70464L, 5))).build();
+    }
+}
@@ -0,0 +1,38 @@
+package com.adzerk.android.sdk;
+
+import com.adzerk.android.sdk.rest.AdzerkService;
+import com.adzerk.android.sdk.rest.Operation;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk=25, constants=BuildConfig.class)
+public class OperationsTest {
+
+    @Test
+    public void itShouldNameEveryServiceMethodWithAnOperationConstant() throws Exception {
+        Set<String> constants = new HashSet<>();
+        for (Field field : Operations.class.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers()) && field.getType() == String.class) {
+                constants.add((String) field.get(null));
+            }
+        }
+
+        for (Method method : AdzerkService.class.getDeclaredMethods()) {
+            Operation operation = method.getAnnotation(Operation.class);
+            assertThat(operation).as(method.getName()).isNotNull();
+            assertThat(constants).as(method.getName()).contains(operation.value());
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.adzerk.android.sdk;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk=25, constants=BuildConfig.class)
+public class PixelBatcherTest {
+
+    @Mock Call<Void> firstCall;
+    @Mock Call<Void> secondCall;
+    @Mock Callback<Void> firstCallback;
+    @Mock Callback<Void> secondCallback;
+
+    ScheduledThreadPoolExecutor scheduler;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        scheduler = new ScheduledThreadPoolExecutor(1);
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void itShouldHoldPixelsUntilWindowElapses() {
+        PixelBatcher batcher = new PixelBatcher(scheduler, 200L, 10);
+        batcher.add(firstCall, firstCallback);
+        batcher.add(secondCall, secondCallback);
+
+        verify(firstCall, never()).enqueue(firstCallback);
+        assertThat(batcher.getBatchedCount()).isEqualTo(2);
+
+        verify(firstCall, timeout(2000)).enqueue(firstCallback);
+        verify(secondCall, timeout(2000)).enqueue(secondCallback);
+        assertThat(batcher.getBatchedCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void itShouldSendBatchWhenFull() {
+        PixelBatcher batcher = new PixelBatcher(scheduler, 60000L, 2);
+        batcher.add(firstCall, firstCallback);
+        batcher.add(secondCall, secondCallback);
+
+        verify(firstCall).enqueue(firstCallback);
+        verify(secondCall).enqueue(secondCallback);
+        assertThat(batcher.getBatchedCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void itShouldSendBatchOnFlush() {
+        PixelBatcher batcher = new PixelBatcher(scheduler, 60000L, 10);
+        batcher.add(firstCall, firstCallback);
+        batcher.flush();
+
+        verify(firstCall).enqueue(firstCallback);
+        assertThat(batcher.getBatchedCount()).isEqualTo(0);
+    }
+}
@@ -0,0 +1,109 @@
+package com.adzerk.android.sdk;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk=25, constants=BuildConfig.class)
+public class PixelDispatcherTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    MockWebServer server;
+    ScheduledThreadPoolExecutor scheduler;
+    PixelJournal journal;
+    PixelDispatcher dispatcher;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        scheduler = new ScheduledThreadPoolExecutor(1);
+        journal = new PixelJournal(folder.newFolder("adzerk"));
+        dispatcher = new PixelDispatcher(new OkHttpClient(), 2, 8, journal, scheduler);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        scheduler.shutdownNow();
+        server.shutdown();
+    }
+
+    @Test
+    public void itShouldJournalOnSchedulerThread() throws Exception {
+        CountDownLatch release = blockScheduler();
+
+        PixelDispatcher.TrackedPixel pixel = dispatcher.track(server.url("/i.gif?e=1"));
+        assertThat(pixel).isNotNull();
+        assertThat(journal.size()).isEqualTo(0);
+
+        release.countDown();
+        awaitScheduler();
+        assertThat(journal.getPending()).containsValue(server.url("/i.gif?e=1").toString());
+
+        dispatcher.delivered(pixel);
+        awaitScheduler();
+        assertThat(journal.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void itShouldAcknowledgeDispatchedPixel() throws Exception {
+        server.enqueue(new MockResponse());
+        HttpUrl url = server.url("/i.gif?e=2");
+
+        assertThat(dispatcher.dispatch(url)).isTrue();
+        assertThat(server.takeRequest(5, TimeUnit.SECONDS).getPath()).isEqualTo("/i.gif?e=2");
+
+        // the acknowledgement is queued on the scheduler after the response is read
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (awaitScheduler() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        assertThat(journal.size()).isEqualTo(0);
+    }
+
+    // Blocks the scheduler thread until the returned latch is released
+    CountDownLatch blockScheduler() {
+        final CountDownLatch release = new CountDownLatch(1);
+        scheduler.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        return release;
+    }
+
+    // Waits for the tasks queued on the scheduler so far, returning the number of pending journal entries
+    int awaitScheduler() throws Exception {
+        return scheduler.submit(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return journal.size();
+            }
+        }).get(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,82 @@
+package com.adzerk.android.sdk;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.util.Map;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk=25, constants=BuildConfig.class)
+public class PixelJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    File directory;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = folder.newFolder("adzerk");
+    }
+
+    @Test
+    public void itShouldRestorePendingPixels() throws Exception {
+        PixelJournal journal = new PixelJournal(directory);
+        long first = journal.append("https://e-23.adzerk.net/i.gif?e=1");
+        long second = journal.append("https://e-23.adzerk.net/r?e=2&additional=1.25");
+        journal.close();
+
+        Map<Long, String> pending = new PixelJournal(directory).getPending();
+        assertThat(pending).hasSize(2);
+        assertThat(pending.get(first)).isEqualTo("https://e-23.adzerk.net/i.gif?e=1");
+        assertThat(pending.get(second)).isEqualTo("https://e-23.adzerk.net/r?e=2&additional=1.25");
+    }
+
+    @Test
+    public void itShouldForgetAcknowledgedPixels() throws Exception {
+        PixelJournal journal = new PixelJournal(directory);
+        long first = journal.append("https://e-23.adzerk.net/i.gif?e=1");
+        long second = journal.append("https://e-23.adzerk.net/i.gif?e=2");
+        journal.acknowledge(first);
+        journal.close();
+
+        PixelJournal reopened = new PixelJournal(directory);
+        assertThat(reopened.getPending()).containsOnlyKeys(second);
+
+        // new ids never collide with restored ones
+        assertThat(reopened.append("https://e-23.adzerk.net/i.gif?e=3")).isGreaterThan(second);
+    }
+
+    @Test
+    public void itShouldCompactAcknowledgedRecords() throws Exception {
+        PixelJournal journal = new PixelJournal(directory);
+        for (int i = 0; i < PixelJournal.COMPACT_THRESHOLD; i++) {
+            journal.acknowledge(journal.append("https://e-23.adzerk.net/i.gif?e=" + i));
+        }
+        long kept = journal.append("https://e-23.adzerk.net/i.gif?e=kept");
+        journal.close();
+
+        File file = new File(directory, PixelJournal.FILE_NAME);
+        assertThat(file.length()).isLessThan(200L);
+        assertThat(new PixelJournal(directory).getPending()).containsOnlyKeys(kept);
+    }
+
+    @Test
+    public void itShouldDropOldestPixelsWhenFull() throws Exception {
+        PixelJournal journal = new PixelJournal(directory, 2);
+        long first = journal.append("https://e-23.adzerk.net/i.gif?e=1");
+        long second = journal.append("https://e-23.adzerk.net/i.gif?e=2");
+        long third = journal.append("https://e-23.adzerk.net/i.gif?e=3");
+
+        assertThat(journal.getPending()).containsOnlyKeys(second, third);
+        assertThat(journal.getPending()).doesNotContainKey(first);
+    }
+}
@@ -0,0 +1,143 @@
+package com.adzerk.android.sdk;
+
+import com.adzerk.android.sdk.gson.FlattenTypeAdapterFactory;
+import com.adzerk.android.sdk.rest.DecisionResponse;
+import com.adzerk.android.sdk.rest.Placement;
+import com.adzerk.android.sdk.rest.Request;
+import com.adzerk.android.sdk.rest.User;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk=25, constants=BuildConfig.class)
+public class PlacementAggregatorTest {
+
+    @Mock AdzerkSdk.DecisionListener firstListener;
+    @Mock AdzerkSdk.DecisionListener secondListener;
+
+    ScheduledThreadPoolExecutor scheduler;
+    Gson gson;
+    RecordingSender sender;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        scheduler = new ScheduledThreadPoolExecutor(1);
+        gson = new GsonBuilder().registerTypeAdapterFactory(new FlattenTypeAdapterFactory()).create();
+        sender = new RecordingSender();
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void itShouldMergeCompatibleRequests() {
+        PlacementAggregator aggregator = new PlacementAggregator(scheduler, gson, 60000L, 2, sender);
+        aggregator.add(createRequest("div1", "abc"), firstListener);
+        assertThat(sender.requests).isEmpty();
+
+        aggregator.add(createRequest("div2", "abc"), secondListener);
+        assertThat(sender.requests).hasSize(1);
+        assertThat(sender.requests.get(0).getPlacements()).hasSize(2);
+        assertThat(sender.requests.get(0).getUser().getKey()).isEqualTo("abc");
+        assertThat(aggregator.getPendingCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void itShouldSplitResponseByDivName() {
+        PlacementAggregator aggregator = new PlacementAggregator(scheduler, gson, 60000L, 2, sender);
+        aggregator.add(createRequest("div1", "abc"), firstListener);
+        aggregator.add(createRequest("div2", "abc"), secondListener);
+
+        DecisionResponse response = gson.fromJson("{\"user\":{\"key\":\"abc\"},\"decisions\":{"
+                + "\"div1\":[{\"adId\":1}],\"div2\":[{\"adId\":2}]}}", DecisionResponse.class);
+        sender.listeners.get(0).success(response);
+
+        ArgumentCaptor<DecisionResponse> first = ArgumentCaptor.forClass(DecisionResponse.class);
+        verify(firstListener).success(first.capture());
+        assertThat(first.getValue().getDecisions()).containsOnlyKeys("div1");
+        assertThat(first.getValue().getUser().getKey()).isEqualTo("abc");
+
+        ArgumentCaptor<DecisionResponse> second = ArgumentCaptor.forClass(DecisionResponse.class);
+        verify(secondListener).success(second.capture());
+        assertThat(second.getValue().getDecisions()).containsOnlyKeys("div2");
+        assertThat(second.getValue().getDecisions("div2").get(0).getAdId()).isEqualTo(2);
+    }
+
+    @Test
+    public void itShouldNotMergeDifferentUsers() {
+        PlacementAggregator aggregator = new PlacementAggregator(scheduler, gson, 60000L, 2, sender);
+        aggregator.add(createRequest("div1", "abc"), firstListener);
+        aggregator.add(createRequest("div2", "xyz"), secondListener);
+
+        assertThat(sender.requests).isEmpty();
+        assertThat(aggregator.getPendingCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void itShouldNotMergeSameDivName() {
+        PlacementAggregator aggregator = new PlacementAggregator(scheduler, gson, 60000L, 2, sender);
+        Request first = createRequest("div1", "abc");
+        aggregator.add(first, firstListener);
+        aggregator.add(createRequest("div1", "abc"), secondListener);
+
+        // the first batch is sent on its own, unmodified
+        assertThat(sender.requests).containsExactly(first);
+        assertThat(sender.listeners).containsExactly(firstListener);
+        assertThat(aggregator.getPendingCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void itShouldSendBatchWhenWindowElapses() throws Exception {
+        PlacementAggregator aggregator = new PlacementAggregator(scheduler, gson, 20L, 16, sender);
+        aggregator.add(createRequest("div1", "abc"), firstListener);
+        aggregator.add(createRequest("div2", "abc"), secondListener);
+
+        synchronized (sender) {
+            long deadline = System.currentTimeMillis() + 2000L;
+            while (sender.requests.isEmpty() && System.currentTimeMillis() < deadline) {
+                sender.wait(100L);
+            }
+        }
+        assertThat(sender.requests).hasSize(1);
+        assertThat(sender.requests.get(0).getPlacements()).hasSize(2);
+    }
+
+    private Request createRequest(String divName, String userKey) {
+        return new Request.Builder()
+                .addPlacement(new Placement(divName, 9709L, 70464L, 5))
+                .setUser(new User(userKey))
+                .build();
+    }
+
+    static class RecordingSender implements PlacementAggregator.RequestSender {
+        final List<Request> requests = new ArrayList<>();
+        final List<AdzerkSdk.DecisionListener> listeners = new ArrayList<>();
+
+        @Override
+        public synchronized void send(Request request, AdzerkSdk.DecisionListener listener) {
+            requests.add(request);
+            listeners.add(listener);
+            notifyAll();
+        }
+    }
+}
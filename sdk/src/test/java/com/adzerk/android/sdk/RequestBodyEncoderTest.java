@@ -0,0 +1,142 @@
+package com.adzerk.android.sdk;
+
+import com.adzerk.android.sdk.gson.GsonFactory;
+import com.adzerk.android.sdk.rest.Consent;
+import com.adzerk.android.sdk.rest.Placement;
+import com.adzerk.android.sdk.rest.Request;
+import com.adzerk.android.sdk.rest.User;
+import com.google.gson.Gson;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.util.Arrays;
+
+import okhttp3.RequestBody;
+import okio.Buffer;
+import retrofit2.Converter;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk=25, constants=BuildConfig.class)
+public class RequestBodyEncoderTest {
+
+    Gson gson;
+    RequestBodyEncoder encoder;
+    Converter<Request, RequestBody> converter;
+    Converter<Request, RequestBody> gsonConverter;
+
+    Placement placement1;
+    Placement placement2;
+    Consent consent;
+    Request request;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        gson = GsonFactory.create();
+        encoder = new RequestBodyEncoder(gson);
+        converter = (Converter<Request, RequestBody>) encoder.requestBodyConverter(Request.class,
+                new Annotation[0], new Annotation[0], null);
+        gsonConverter = (Converter<Request, RequestBody>) GsonConverterFactory.create(gson)
+                .requestBodyConverter(Request.class, new Annotation[0], new Annotation[0], null);
+
+        placement1 = new Placement("div1", 9709L, 70464L, 5)
+                .addZoneIds(136961)
+                .addProperty("size", "large")
+                .addAdditionalOption("foo", "bar");
+        placement2 = new Placement("div2", 9709L, 70464L, 5, 7);
+        consent = new Consent(true);
+        request = new Request.Builder(Arrays.asList(placement1, placement2))
+                .setUser(new User("abc", consent))
+                .setConsent(consent)
+                .addKeywords("sports")
+                .setUrl("https://adzerk.com/<page>")
+                .addAdditionalOption("customOption", 42)
+                .build();
+    }
+
+    @Test
+    public void itShouldWriteSameJsonAsGson() throws Exception {
+        assertThat(encode(request)).isEqualTo(encodeWithGson(request));
+        // placements, the user and its consent, and the request consent
+        assertThat(encoder.getWrittenCount()).isEqualTo(4);
+        assertThat(encoder.getReusedCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void itShouldReuseJsonOfUnchangedObjects() throws Exception {
+        String first = encode(request);
+        int written = encoder.getWrittenCount();
+
+        assertThat(encode(request)).isEqualTo(first);
+        assertThat(encoder.getWrittenCount()).isEqualTo(written);
+        assertThat(encoder.getReusedCount()).isEqualTo(5);
+    }
+
+    @Test
+    public void itShouldRewriteChangedPlacement() throws Exception {
+        encode(request);
+        int written = encoder.getWrittenCount();
+
+        placement2.setCount(3);
+        String json = encode(request);
+
+        assertThat(json).isEqualTo(encodeWithGson(request));
+        assertThat(json).contains("\"count\":3");
+        assertThat(encoder.getWrittenCount()).isEqualTo(written + 1);
+    }
+
+    @Test
+    public void itShouldRewritePlacementWhenIdsChange() throws Exception {
+        encode(request);
+
+        placement1.getZoneIds().add(136962);
+        String json = encode(request);
+
+        assertThat(json).isEqualTo(encodeWithGson(request));
+        assertThat(json).contains("136962");
+    }
+
+    @Test
+    public void itShouldRewriteUserWhenConsentChanges() throws Exception {
+        encode(request);
+        int written = encoder.getWrittenCount();
+
+        consent.setGdpr(false);
+        String json = encode(request);
+
+        assertThat(json).isEqualTo(encodeWithGson(request));
+        assertThat(json).doesNotContain("\"gdpr\":true");
+        // the consent, the user holding it, and the consent of the request reusing the new fragment
+        assertThat(encoder.getWrittenCount()).isEqualTo(written + 2);
+    }
+
+    @Test
+    public void itShouldLeaveOtherTypesToGson() {
+        assertThat(encoder.requestBodyConverter(Placement.class, new Annotation[0], new Annotation[0], null))
+                .isNull();
+    }
+
+    String encode(Request request) throws IOException {
+        return toString(converter.convert(request));
+    }
+
+    // body the converter of Retrofit writes without the encoder
+    String encodeWithGson(Request request) throws IOException {
+        return toString(gsonConverter.convert(request));
+    }
+
+    static String toString(RequestBody body) throws IOException {
+        Buffer buffer = new Buffer();
+        body.writeTo(buffer);
+        return buffer.readUtf8();
+    }
+}
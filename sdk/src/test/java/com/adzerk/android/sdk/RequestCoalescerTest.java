@@ -0,0 +1,136 @@
+package com.adzerk.android.sdk;
+
+import com.adzerk.android.sdk.rest.DecisionResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import retrofit2.Call;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk=25, constants=BuildConfig.class)
+public class RequestCoalescerTest {
+
+    @Mock AdzerkSdk.DecisionListener firstListener;
+    @Mock AdzerkSdk.DecisionListener secondListener;
+    @Mock DecisionResponse response;
+
+    RequestCoalescer coalescer;
+    StubFactory factory;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        coalescer = new RequestCoalescer();
+        factory = new StubFactory();
+    }
+
+    @Test
+    public void itShouldShareInFlightRequest() {
+        coalescer.join("{\"placements\":[]}", firstListener, factory);
+        coalescer.join("{\"placements\":[]}", secondListener, factory);
+        assertThat(factory.listeners).hasSize(1);
+
+        factory.listeners.get(0).success(response);
+
+        verify(firstListener).success(response);
+        verify(secondListener).success(response);
+        assertThat(coalescer.getInFlightCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void itShouldDeliverErrorToAllListeners() {
+        coalescer.join("{\"placements\":[]}", firstListener, factory);
+        coalescer.join("{\"placements\":[]}", secondListener, factory);
+
+        AdzerkSdk.AdzerkError error = new AdzerkSdk.AdzerkError(500, "Server Error", null);
+        factory.listeners.get(0).error(error);
+
+        verify(firstListener).error(error);
+        verify(secondListener).error(error);
+    }
+
+    @Test
+    public void itShouldNotShareDifferentRequests() {
+        coalescer.join("{\"placements\":[1]}", firstListener, factory);
+        coalescer.join("{\"placements\":[2]}", secondListener, factory);
+        assertThat(factory.listeners).hasSize(2);
+        assertThat(coalescer.getInFlightCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void itShouldStartNewRequestAfterCompletion() {
+        coalescer.join("{\"placements\":[]}", firstListener, factory);
+        factory.listeners.get(0).success(response);
+
+        coalescer.join("{\"placements\":[]}", secondListener, factory);
+        assertThat(factory.listeners).hasSize(2);
+    }
+
+    @Test
+    public void itShouldAcceptNullListener() {
+        coalescer.join("{\"placements\":[]}", null, factory);
+        coalescer.join("{\"placements\":[]}", firstListener, factory);
+
+        factory.listeners.get(0).success(response);
+        verify(firstListener).success(response);
+    }
+
+    @Test
+    public void itShouldOnlyDetachCancelledCaller() {
+        Call<DecisionResponse> first = coalescer.join("{\"placements\":[]}", firstListener, factory);
+        coalescer.join("{\"placements\":[]}", secondListener, factory);
+
+        first.cancel();
+        assertThat(first.isCanceled()).isTrue();
+        verify(factory.calls.get(0), never()).cancel();
+
+        factory.listeners.get(0).success(response);
+        verify(firstListener, never()).success(any(DecisionResponse.class));
+        verify(secondListener).success(response);
+    }
+
+    @Test
+    public void itShouldCancelCallWhenAllCallersCancel() {
+        Call<DecisionResponse> first = coalescer.join("{\"placements\":[]}", firstListener, factory);
+        Call<DecisionResponse> second = coalescer.join("{\"placements\":[]}", null, factory);
+
+        first.cancel();
+        second.cancel();
+
+        verify(factory.calls.get(0)).cancel();
+        assertThat(coalescer.getInFlightCount()).isEqualTo(0);
+
+        // a later identical request makes a new call
+        coalescer.join("{\"placements\":[]}", secondListener, factory);
+        assertThat(factory.calls).hasSize(2);
+    }
+
+    static class StubFactory implements RequestCoalescer.CallFactory {
+        final List<AdzerkSdk.DecisionListener> listeners = new ArrayList<>();
+        final List<Call<DecisionResponse>> calls = new ArrayList<>();
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Call<DecisionResponse> start(AdzerkSdk.DecisionListener listener) {
+            Call<DecisionResponse> call = mock(Call.class);
+            listeners.add(listener);
+            calls.add(call);
+            return call;
+        }
+    }
+}
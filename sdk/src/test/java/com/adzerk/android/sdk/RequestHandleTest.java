@@ -0,0 +1,94 @@
+package com.adzerk.android.sdk;
+
+import com.adzerk.android.sdk.rest.DecisionResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import retrofit2.Call;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk=25, constants=BuildConfig.class)
+public class RequestHandleTest {
+
+    @Mock Call<DecisionResponse> call;
+    @Mock Call<DecisionResponse> otherCall;
+    @Mock AdzerkSdk.DecisionListener listener;
+    @Mock DecisionResponse response;
+
+    RequestHandle.Registry registry;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        registry = new RequestHandle.Registry();
+    }
+
+    @Test
+    public void itShouldCancelCallAndDropListener() {
+        RequestHandle handle = new RequestHandle(null, registry);
+        AdzerkSdk.DecisionListener wrapped = handle.wrap(listener);
+        handle.setCall(call);
+
+        handle.cancel();
+        wrapped.error(new AdzerkSdk.AdzerkError(new java.io.IOException("Canceled")));
+
+        verify(call).cancel();
+        verify(listener, never()).error(any(AdzerkSdk.AdzerkError.class));
+        assertThat(handle.isCancelled()).isTrue();
+    }
+
+    @Test
+    public void itShouldDeliverResponseWhenNotCancelled() {
+        RequestHandle handle = new RequestHandle(null, registry);
+        handle.setCall(call);
+        handle.wrap(listener).success(response);
+
+        verify(listener).success(response);
+        assertThat(handle.isDone()).isTrue();
+
+        handle.cancel();
+        verify(call, never()).cancel();
+        assertThat(handle.isCancelled()).isFalse();
+    }
+
+    @Test
+    public void itShouldCancelAllRequestsWithTag() {
+        Object tag = new Object();
+        RequestHandle first = new RequestHandle(tag, registry);
+        RequestHandle second = new RequestHandle(tag, registry);
+        RequestHandle untagged = new RequestHandle("other", registry);
+        registry.add(first);
+        registry.add(second);
+        registry.add(untagged);
+        first.setCall(call);
+        second.setCall(otherCall);
+
+        registry.cancelAll(tag);
+
+        verify(call).cancel();
+        verify(otherCall).cancel();
+        assertThat(untagged.isCancelled()).isFalse();
+        assertThat(registry.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void itShouldReleaseTagWhenRequestCompletes() {
+        RequestHandle handle = new RequestHandle("tag", registry);
+        registry.add(handle);
+
+        handle.wrap(listener).success(response);
+
+        assertThat(registry.size()).isEqualTo(0);
+    }
+}
@@ -0,0 +1,214 @@
+package com.adzerk.android.sdk;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+import okio.Timeout;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk=25, constants=BuildConfig.class)
+public class RequestHedgerTest {
+
+    @Mock Callback<String> callback;
+
+    ScheduledThreadPoolExecutor scheduler;
+    StubFactory factory;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        scheduler = new ScheduledThreadPoolExecutor(1);
+        factory = new StubFactory();
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void itShouldNotHedgeFastResponses() throws Exception {
+        RequestHedger hedger = new RequestHedger(scheduler, 95, 60000L, null);
+        StubCall primary = new StubCall();
+        Call<String> call = hedger.hedge(primary, factory);
+        call.enqueue(callback);
+
+        Response<String> response = Response.success("primary");
+        primary.callback.onResponse(primary, response);
+
+        verify(callback).onResponse(call, response);
+        assertThat(factory.calls).isEmpty();
+        assertThat(hedger.getHedgedCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void itShouldDeliverFirstResponseAndCancelOther() throws Exception {
+        RequestHedger hedger = new RequestHedger(scheduler, 95, 10L, null);
+        StubCall primary = new StubCall();
+        Call<String> call = hedger.hedge(primary, factory);
+        call.enqueue(callback);
+
+        StubCall hedge = factory.await();
+        Response<String> response = Response.success("hedge");
+        hedge.callback.onResponse(hedge, response);
+        primary.callback.onResponse(primary, Response.success("primary"));
+
+        verify(callback).onResponse(call, response);
+        assertThat(primary.canceled).isTrue();
+        assertThat(hedge.canceled).isFalse();
+        assertThat(hedger.getHedgedCount()).isEqualTo(1);
+        assertThat(hedger.getHedgeWinCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void itShouldWaitForHedgeWhenFirstCallFails() throws Exception {
+        RequestHedger hedger = new RequestHedger(scheduler, 95, 10L, null);
+        StubCall primary = new StubCall();
+        Call<String> call = hedger.hedge(primary, factory);
+        call.enqueue(callback);
+
+        StubCall hedge = factory.await();
+        primary.callback.onFailure(primary, new IOException("reset"));
+        verify(callback, never()).onFailure(any(Call.class), any(Throwable.class));
+
+        Response<String> response = Response.success("hedge");
+        hedge.callback.onResponse(hedge, response);
+        verify(callback).onResponse(call, response);
+    }
+
+    @Test
+    public void itShouldReportFailureBeforeHedgeDelay() {
+        RequestHedger hedger = new RequestHedger(scheduler, 95, 60000L, null);
+        StubCall primary = new StubCall();
+        Call<String> call = hedger.hedge(primary, factory);
+        call.enqueue(callback);
+
+        IOException failure = new IOException("reset");
+        primary.callback.onFailure(primary, failure);
+
+        verify(callback).onFailure(eq(call), eq(failure));
+        assertThat(factory.calls).isEmpty();
+    }
+
+    @Test
+    public void itShouldCancelBothCalls() throws Exception {
+        RequestHedger hedger = new RequestHedger(scheduler, 95, 10L, null);
+        StubCall primary = new StubCall();
+        Call<String> call = hedger.hedge(primary, factory);
+        call.enqueue(callback);
+        StubCall hedge = factory.await();
+
+        call.cancel();
+
+        assertThat(call.isCanceled()).isTrue();
+        assertThat(primary.canceled).isTrue();
+        assertThat(hedge.canceled).isTrue();
+    }
+
+    @Test
+    public void itShouldUsePercentileOfRecentLatencies() {
+        RequestHedger hedger = new RequestHedger(scheduler, 90, 500L, null);
+        for (int i = 1; i < RequestHedger.MIN_SAMPLES; i++) {
+            hedger.record(i * 10L);
+        }
+        assertThat(hedger.getDelayMillis()).isEqualTo(500L);
+
+        for (int i = RequestHedger.MIN_SAMPLES; i <= 100; i++) {
+            hedger.record(i * 10L);
+        }
+        // the last 64 samples are 370..1000ms
+        assertThat(hedger.getDelayMillis()).isEqualTo(940L);
+    }
+
+    static class StubFactory implements RequestHedger.CallFactory<String> {
+        final List<StubCall> calls = new ArrayList<>();
+
+        @Override
+        public synchronized Call<String> newHedge() {
+            StubCall call = new StubCall();
+            calls.add(call);
+            notifyAll();
+            return call;
+        }
+
+        synchronized StubCall await() throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 2000L;
+            while (calls.isEmpty() && System.currentTimeMillis() < deadline) {
+                wait(100L);
+            }
+            assertThat(calls).hasSize(1);
+            StubCall call = calls.get(0);
+            // the hedge is enqueued right after it is created
+            while (call.callback == null && System.currentTimeMillis() < deadline) {
+                wait(10L);
+            }
+            return call;
+        }
+    }
+
+    static class StubCall implements Call<String> {
+        volatile Callback<String> callback;
+        volatile boolean canceled;
+        final Timeout timeout = new Timeout();
+
+        @Override
+        public Response<String> execute() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void enqueue(Callback<String> callback) {
+            this.callback = callback;
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return callback != null;
+        }
+
+        @Override
+        public void cancel() {
+            canceled = true;
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled;
+        }
+
+        @Override
+        public Call<String> clone() {
+            return new StubCall();
+        }
+
+        @Override
+        public okhttp3.Request request() {
+            return new okhttp3.Request.Builder().url("http://localhost/api/v2").build();
+        }
+
+        @Override
+        public Timeout timeout() {
+            return timeout;
+        }
+    }
+}
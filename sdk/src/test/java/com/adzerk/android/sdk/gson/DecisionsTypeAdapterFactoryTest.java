@@ -0,0 +1,66 @@
+package com.adzerk.android.sdk.gson;
+
+import com.adzerk.android.sdk.BuildConfig;
+import com.adzerk.android.sdk.rest.DecisionResponse;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk=25, constants= BuildConfig.class)
+public class DecisionsTypeAdapterFactoryTest {
+
+    Gson gson;
+
+    @Before
+    public void setUp() throws Exception {
+        gson = new GsonBuilder().create();
+    }
+
+    @Test
+    public void itShouldReadSingleWinnerDecisions() {
+        DecisionResponse response = gson.fromJson("{\"decisions\":{\"div1\":{\"adId\":1,\"flightId\":2},\"div2\":null}}", DecisionResponse.class);
+
+        assertThat(response.getDecisions()).containsKeys("div1", "div2");
+        assertThat(response.getDecisions("div1")).hasSize(1);
+        assertThat(response.getDecisions("div1").get(0).getAdId()).isEqualTo(1);
+        assertThat(response.getDecisions("div1").get(0).getFlightId()).isEqualTo(2);
+        assertThat(response.getDecisions("div2")).isNull();
+    }
+
+    @Test
+    public void itShouldReadMultiWinnerDecisions() {
+        DecisionResponse response = gson.fromJson("{\"decisions\":{\"div1\":[{\"adId\":1},{\"adId\":2}],\"div2\":[]}}", DecisionResponse.class);
+
+        assertThat(response.getDecisions("div1")).hasSize(2);
+        assertThat(response.getDecisions("div1").get(1).getAdId()).isEqualTo(2);
+        assertThat(response.getDecisions("div2")).isEmpty();
+    }
+
+    @Test
+    public void itShouldReadEmptyAndNullDecisions() {
+        assertThat(gson.fromJson("{\"decisions\":{}}", DecisionResponse.class).getDecisions()).isEmpty();
+        assertThat(gson.fromJson("{\"decisions\":null}", DecisionResponse.class).getDecisions()).isNull();
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void itShouldRejectUnexpectedDecision() {
+        gson.fromJson("{\"decisions\":{\"div1\":42}}", DecisionResponse.class);
+    }
+
+    @Test
+    public void itShouldWriteDecisions() {
+        DecisionResponse response = gson.fromJson("{\"decisions\":{\"div1\":{\"adId\":1}}}", DecisionResponse.class);
+        DecisionResponse copy = gson.fromJson(gson.toJson(response), DecisionResponse.class);
+
+        assertThat(copy.getDecisions("div1").get(0).getAdId()).isEqualTo(1);
+    }
+}
@@ -5,6 +5,7 @@ import com.adzerk.android.sdk.rest.AdditionalOptions;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonSyntaxException;
+import com.google.gson.annotations.SerializedName;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -56,6 +57,15 @@ public class FlattenTypeAdapterFactoryTest {
         }
     }
 
+    @FlattenAdditionalOptions(fieldName = "additionalOptions")
+    public class FieldsContainer {
+        @SerializedName("renamed")
+        String name = "value";
+        transient String skipped = "skipped";
+        Object nested = new AdditionalOptionsContainer();
+        AdditionalOptions additionalOptions;
+    }
+
     Gson gson;
     AdditionalOptionsContainer additionalOptionsContainer;
 
@@ -72,6 +82,13 @@ public class FlattenTypeAdapterFactoryTest {
         assertFalse(json.contains("additionalOptions"));
     }
 
+    @Test
+    public void ShouldSerializeFields_WithNestedAdditionalOptions() {
+        String json = new GsonBuilder().registerTypeAdapterFactory(new FlattenTypeAdapterFactory()).create()
+                .toJson(new FieldsContainer());
+        assertEquals("{\"renamed\":\"value\",\"nested\":{\"int1\":1,\"string1\":\"string1Value\",\"booleanFalse\":false}}", json);
+    }
+
     @Test(expected = JsonSyntaxException.class)
     public void ShouldThrowException_FieldTypeIsNotCorrectType() {
         gson.toJson(new AdditionalOptionsInvalidContainer());
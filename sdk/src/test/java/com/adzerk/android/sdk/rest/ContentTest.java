@@ -52,6 +52,23 @@ public class ContentTest {
         assertThat(div1Content.getCreativeMetadata("bar")).isEqualTo("some string");
     }
 
+    @Test
+    public void itShouldBuildCreativeDataOnFirstAccess() {
+        DecisionResponse response = sdk.requestPlacementSynchronous(createTestRequest());
+        Content content = response.getDecisions("div1").get(0).getContents().get(0);
+        ContentData contentData = content.getContentData();
+
+        assertThat(contentData.creativeData).isNull();
+        assertThat(content.hasCreativeData()).isTrue();
+        assertThat(content.getCreativeMetadataAsJson().get("foo").getAsInt()).isEqualTo(42);
+        assertThat(contentData.creativeData).isNull();
+
+        assertThat(content.getCreativeData("title")).isEqualTo("ZOMG LOOK AT THIS FRICKING CAT");
+        assertThat(contentData.creativeData).isNotNull();
+        assertThat(contentData.dataJson).isNull();
+        assertThat(content.getCreativeMetadata()).isSameAs(content.getCreativeData().get("customData"));
+    }
+
     private Request createTestRequest() {
         return new Builder()
                 .addPlacement(new Placement("div1", 9709L, 70464L, 5))
@@ -12,6 +12,7 @@ import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 
+import java.util.Arrays;
 import java.util.List;
 
 import static org.assertj.core.api.Java6Assertions.assertThat;
@@ -122,6 +123,16 @@ public class DecisionResponseTest {
         assertThat(fpr.getLocation()).isEqualTo("http://adzerk.com");;
     }
 
+    @Test
+    public void itShouldSelectDecisionsForPlacements() {
+        DecisionResponse response = sdk.requestPlacementSynchronous(createTestRequest());
+        DecisionResponse div1Response = response.forPlacements(Arrays.asList("div1"));
+
+        assertThat(div1Response.getUser()).isSameAs(response.getUser());
+        assertThat(div1Response.getDecisions()).containsOnlyKeys("div1");
+        assertThat(div1Response.getDecisions("div1")).isSameAs(response.getDecisions("div1"));
+    }
+
     private Request createTestRequest() {
         return new Request.Builder()
                 .addPlacement(new Placement("div1", 9709L, 70464L, 5))
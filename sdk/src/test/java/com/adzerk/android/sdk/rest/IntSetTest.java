@@ -0,0 +1,105 @@
+package com.adzerk.android.sdk.rest;
+
+import com.adzerk.android.sdk.BuildConfig;
+import com.adzerk.android.sdk.gson.GsonFactory;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk=25, constants=BuildConfig.class)
+public class IntSetTest {
+
+    @Test
+    public void itShouldKeepInsertionOrderWithoutDuplicates() {
+        IntSet set = IntSet.of(7, 3, 7, 9, 3);
+
+        assertThat(set).containsExactly(7, 3, 9);
+        assertThat(set.toIntArray()).containsExactly(7, 3, 9);
+        assertThat(set.add(3)).isFalse();
+        assertThat(set.add(1)).isTrue();
+        assertThat(set.valueAt(3)).isEqualTo(1);
+    }
+
+    @Test
+    public void itShouldFindIdsInLargeSets() {
+        IntSet set = new IntSet();
+        for (int i = 0; i < 1000; i++) {
+            set.add(i * 31);
+        }
+
+        assertThat(set.size()).isEqualTo(1000);
+        for (int i = 0; i < 1000; i++) {
+            assertThat(set.contains(i * 31)).isTrue();
+            assertThat(set.contains(i * 31 + 1)).isFalse();
+        }
+        assertThat(set.add(31)).isFalse();
+    }
+
+    @Test
+    public void itShouldRemoveIds() {
+        IntSet set = new IntSet();
+        for (int i = 0; i < 20; i++) {
+            set.add(i);
+        }
+        assertThat(set.remove(5)).isTrue();
+        assertThat(set.remove((Object) 6)).isTrue();
+        assertThat(set.remove(42)).isFalse();
+
+        Iterator<Integer> iterator = set.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() % 2 == 0) {
+                iterator.remove();
+            }
+        }
+
+        assertThat(set).containsExactly(1, 3, 7, 9, 11, 13, 15, 17, 19);
+        assertThat(set.contains(19)).isTrue();
+        assertThat(set.contains(18)).isFalse();
+    }
+
+    @Test
+    public void itShouldEqualBoxedSets() {
+        IntSet set = IntSet.copyOf(Arrays.asList(1, 2, 3));
+        HashSet<Integer> boxed = new HashSet<>(Arrays.asList(3, 2, 1));
+
+        assertThat(set).isEqualTo(boxed);
+        assertThat(boxed).isEqualTo(set);
+        assertThat(set.hashCode()).isEqualTo(boxed.hashCode());
+    }
+
+    @Test
+    public void itShouldSerializeAsArray() {
+        IntSet set = GsonFactory.create().fromJson("[4,2,4]", IntSet.class);
+
+        assertThat(set).containsExactly(4, 2);
+        assertThat(GsonFactory.create().toJson(set)).isEqualTo("[4,2]");
+    }
+
+    @Test
+    public void itShouldSerializeRequestIdSets() {
+        Placement placement = new Placement("div1", 9709L, 70464L, 5, 3)
+                .addZoneIds(10, 11)
+                .addEventIds(1);
+        Request request = new Request.Builder()
+                .addPlacement(placement)
+                .addBlockedCreatives(100, 200)
+                .setFlightViewTimes(42, 1600000000L, 1600000060L)
+                .build();
+
+        String json = GsonFactory.create().toJson(request);
+        assertThat(json).contains("\"adTypes\":[5,3]");
+        assertThat(json).contains("\"zoneIds\":[10,11]");
+        assertThat(json).contains("\"eventIds\":[1]");
+        assertThat(json).contains("\"blockedCreatives\":[100,200]");
+        assertThat(json).contains("\"flightViewTimes\":{\"42\":[1600000000,1600000060]}");
+    }
+}
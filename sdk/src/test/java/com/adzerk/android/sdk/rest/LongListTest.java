@@ -0,0 +1,40 @@
+package com.adzerk.android.sdk.rest;
+
+import com.adzerk.android.sdk.BuildConfig;
+import com.adzerk.android.sdk.gson.GsonFactory;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk=25, constants=BuildConfig.class)
+public class LongListTest {
+
+    @Test
+    public void itShouldAddAndRemoveValues() {
+        LongList list = LongList.of(1L, 2L);
+        for (long i = 3; i <= 10; i++) {
+            list.addLong(i);
+        }
+        list.add(0, 0L);
+        list.remove(5);
+
+        assertThat(list).containsExactly(0L, 1L, 2L, 3L, 4L, 6L, 7L, 8L, 9L, 10L);
+        assertThat(list.getLong(9)).isEqualTo(10L);
+        assertThat(list).isEqualTo(Arrays.asList(0L, 1L, 2L, 3L, 4L, 6L, 7L, 8L, 9L, 10L));
+    }
+
+    @Test
+    public void itShouldSerializeAsArray() {
+        LongList list = GsonFactory.create().fromJson("[1600000000,1600000060]", LongList.class);
+
+        assertThat(list.toLongArray()).containsExactly(1600000000L, 1600000060L);
+        assertThat(GsonFactory.create().toJson(list)).isEqualTo("[1600000000,1600000060]");
+    }
+}
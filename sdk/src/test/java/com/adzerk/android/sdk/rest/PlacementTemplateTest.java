@@ -0,0 +1,93 @@
+package com.adzerk.android.sdk.rest;
+
+import com.adzerk.android.sdk.BuildConfig;
+import com.adzerk.android.sdk.gson.GsonFactory;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk=25, constants=BuildConfig.class)
+public class PlacementTemplateTest {
+
+    Gson gson;
+    Placement placement;
+    PlacementTemplate template;
+
+    @Before
+    public void setUp() {
+        gson = GsonFactory.create();
+        placement = new Placement("div1", 9709L, 70464L, 5, 3)
+                .addZoneIds(10, 11)
+                .addEventIds(1)
+                .addProperty("section", "sports")
+                .addAdditionalOption("foo", "bar");
+        template = PlacementTemplate.of(placement);
+    }
+
+    @Test
+    public void itShouldSerializeLikeSourcePlacement() {
+        Placement first = template.newPlacement();
+        Placement second = template.newPlacement();
+
+        assertThat(first).isNotSameAs(second);
+        assertThat(first.getTemplate()).isSameAs(template);
+        assertThat(first.getZoneIds()).isSameAs(second.getZoneIds());
+        assertThat(gson.toJson(first)).isEqualTo(gson.toJson(placement));
+        // second time from the cached JSON
+        assertThat(gson.toJson(second)).isEqualTo(gson.toJson(placement));
+        assertThat(template.getJson("zoneIds")).isEqualTo("[10,11]");
+    }
+
+    @Test
+    public void itShouldNotChangeWithSourcePlacement() {
+        String json = gson.toJson(placement);
+        placement.addZoneIds(12).setCount(3);
+
+        Placement copy = template.newPlacement();
+        assertThat(copy.getZoneIds()).containsExactly(10, 11);
+        assertThat(gson.toJson(copy)).isEqualTo(json);
+    }
+
+    @Test
+    public void itShouldCopySharedValuesWhenChanged() {
+        Placement copy = template.newPlacement()
+                .addZoneIds(12)
+                .addEventIds(2)
+                .addProperty("page", 2)
+                .addAdditionalOption("baz", 1)
+                .setCount(2);
+
+        JsonObject json = gson.toJsonTree(copy).getAsJsonObject();
+        assertThat(json.get("zoneIds").toString()).isEqualTo("[10,11,12]");
+        assertThat(json.get("eventIds").toString()).isEqualTo("[1,2]");
+        assertThat(json.getAsJsonObject("properties").get("page").getAsInt()).isEqualTo(2);
+        assertThat(json.get("foo").getAsString()).isEqualTo("bar");
+        assertThat(json.get("baz").getAsInt()).isEqualTo(1);
+        assertThat(json.get("count").getAsInt()).isEqualTo(2);
+
+        Placement other = template.newPlacement();
+        assertThat(other.getZoneIds()).containsExactly(10, 11);
+        assertThat(other.getEventIds()).containsExactly(1);
+        assertThat(other.getProperties()).containsOnlyKeys("section");
+        assertThat(other.getAdditionalOptions().getAll()).containsOnlyKeys("foo");
+        assertThat(gson.toJson(other)).isEqualTo(gson.toJson(placement));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void itShouldRejectChangesToSharedIds() {
+        template.newPlacement().getAdTypes().add(7);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void itShouldRejectChangesToSharedProperties() {
+        template.newPlacement().getProperties().put("page", 2);
+    }
+}
@@ -49,6 +49,25 @@ public class RequestTest {
         sdk = AdzerkSdk.createInstance(api);
     }
 
+    @Test
+    public void itShouldCopyRequestWithPlacements() {
+        Request request = new Builder(placements)
+                .setUser(new User("abc"))
+                .addKeywords("sports")
+                .setUrl("http://adzerk.com")
+                .addAdditionalOption("foo", "bar")
+                .build();
+        Placement other = new Placement("div2", 9709, 70464, 5);
+        Request copy = request.withPlacements(Arrays.asList(placement, other));
+
+        assertThat(copy.getPlacements()).containsExactly(placement, other);
+        assertThat(request.getPlacements()).containsExactly(placement);
+        assertThat(copy.getUser()).isSameAs(request.getUser());
+        assertThat(copy.getKeywords()).containsExactly("sports");
+        assertThat(copy.getUrl()).isEqualTo("http://adzerk.com");
+        assertThat(copy.getAdditionalOptions().get("foo").getAsString()).isEqualTo("bar");
+    }
+
     @Test
     public void itShouldThrowOnEmptyPlacements() {
         try {